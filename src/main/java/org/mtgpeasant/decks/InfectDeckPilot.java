@@ -5,18 +5,18 @@ import lombok.Value;
 import org.mtgpeasant.perfectdeck.common.Mana;
 import org.mtgpeasant.perfectdeck.common.cards.Cards;
 import org.mtgpeasant.perfectdeck.common.matchers.MulliganRules;
-import org.mtgpeasant.perfectdeck.common.utils.Permutations;
 import org.mtgpeasant.perfectdeck.goldfish.DeckPilot;
 import org.mtgpeasant.perfectdeck.goldfish.Game;
+import org.mtgpeasant.perfectdeck.goldfish.ManaSolver;
+import org.mtgpeasant.perfectdeck.goldfish.ManaSource;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
-import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class InfectDeckPilot extends DeckPilot {
 
@@ -59,11 +59,17 @@ public class InfectDeckPilot extends DeckPilot {
     private static String[] MANA_PRODUCERS = new String[]{PENDELHAVEN, FOREST, LOTUS_PETAL};
     private static String[] CREATURES = new String[]{GLISTENER_ELF, ICHORCLAW_MYR, BLIGHT_MAMBA};
 
+    private static final ManaSolver SOLVER = new ManaSolver(
+            ManaSource.builder().card(FOREST).kind(ManaSource.Kind.TAP).colors("G").build(),
+            ManaSource.builder().card(PENDELHAVEN).kind(ManaSource.Kind.TAP).colors("G").build(),
+            ManaSource.builder().card(LOTUS_PETAL).kind(ManaSource.Kind.SACRIFICE).colors("G").cost(1).build()
+    );
+
     private static MulliganRules rules;
 
     static {
         try {
-            rules = MulliganRules.parse(new InputStreamReader(InfectDeckPilot.class.getResourceAsStream("/infect-rules.txt")));
+            rules = MulliganRules.parse(new InputStreamReader(InfectDeckPilot.class.getResourceAsStream("/infect-rules.txt"))).compile();
         } catch (IOException e) {
             rules = null;
             System.err.println(e);
@@ -74,6 +80,12 @@ public class InfectDeckPilot extends DeckPilot {
         super(game);
     }
 
+    @Override
+    public boolean reset() {
+        // stateless
+        return true;
+    }
+
     @Override
     public boolean keepHand(Cards hand) {
         if (game.getMulligans() >= 3) {
@@ -153,15 +165,10 @@ public class InfectDeckPilot extends DeckPilot {
 
         if (simulate(potentialPool, boostsToPlay).getCounters() + poisonCounters < 10) {
             // I can't kill with default order (rancors first): is there another order to play my boosts that can kill this turn ?
-            Stream<Stream<String>> allBoostsOrderCombinations = Permutations.of(new ArrayList<>(boostsToPlay));
-            Optional<Sim> bestOrder = allBoostsOrderCombinations
-                    .map(boosts -> simulate(potentialPool, boosts.collect(Collectors.toList())))
-                    .sorted(Comparator.reverseOrder())
-                    .findFirst();
-
-            if (bestOrder.isPresent() && bestOrder.get().getCounters() + poisonCounters >= 10) {
-//                System.out.println("I can rush with " + bestOrder.get().boosts + " instead of " + boostsToPlay);
-                boostsToPlay = bestOrder.get().boosts;
+            Sim bestOrder = bestOrder(potentialPool, new ArrayList<>(boostsToPlay));
+            if (bestOrder.getCounters() + poisonCounters >= 10) {
+//                System.out.println("I can rush with " + bestOrder.boosts + " instead of " + boostsToPlay);
+                boostsToPlay = bestOrder.boosts;
             }
         }
 
@@ -238,67 +245,112 @@ public class InfectDeckPilot extends DeckPilot {
         game.getUntapped(PENDELHAVEN).forEach(card -> game.tap(card).poisonOpponent(1));
     }
 
-    private Sim simulate(Mana potentialPool, Collection<String> boosts) {
+    Sim simulate(Mana potentialPool, Collection<String> boosts) {
         int counters = 0;
         for (String boost : boosts) {
-            switch (boost) {
-                case RANCOR:
-                    if (potentialPool.contains(G)) {
-                        counters += 2;
-                        potentialPool = potentialPool.minus(G);
-                    }
-                    break;
-                case MIGHT_OF_OLD_KROSA:
-                    if (potentialPool.contains(G)) {
-                        counters += 4;
-                        potentialPool = potentialPool.minus(G);
-                    }
-                    break;
-                case GROUNDSWELL:
-                    if (potentialPool.contains(G)) {
-                        counters += game.isLanded() ? 4 : 2;
-                        potentialPool = potentialPool.minus(G);
-                    }
-                    break;
-                case GIANT_GROWTH:
-                case SEAL_OF_STRENGTH:
-                    if (potentialPool.contains(G)) {
-                        counters += 3;
-                        potentialPool = potentialPool.minus(G);
-                    }
-                    break;
-                case BLOSSOMING_DEFENSE:
-                    if (potentialPool.contains(G)) {
-                        counters += 2;
-                        potentialPool = potentialPool.minus(G);
-                    }
-                    break;
-                case LARGER_THAN_LIFE:
-                    if (potentialPool.contains(G1)) {
-                        counters += 4;
-                        potentialPool = potentialPool.minus(G1);
-                    }
-                    break;
-                case VINES_OF_VASTWOOD:
-                    if (potentialPool.contains(GG)) {
-                        counters += 4;
-                        potentialPool = potentialPool.minus(GG);
-                    }
-                    break;
-                case RANGER_S_GUILE:
-                    if (potentialPool.contains(G)) {
-                        counters += 1;
-                        potentialPool = potentialPool.minus(G);
-                    }
-                    break;
+            Mana cost = boostCost(boost);
+            if (cost != null && potentialPool.contains(cost)) {
+                counters += boostCounters(boost);
+                potentialPool = potentialPool.minus(cost);
             }
         }
         return Sim.builder().counters(counters).boosts(boosts).build();
     }
 
+    /**
+     * Finds the order to play boosts that adds the most poison counters
+     * <p>
+     * As a boost is played whenever the pool can pay it, the best order plays first the subset of boosts that adds the
+     * most counters among the ones the potential pool can pay (a 0/1 knapsack), solved by dynamic programming over
+     * (remaining boosts, remaining mana) instead of simulating all permutations.
+     */
+    Sim bestOrder(Mana potentialPool, List<String> boosts) {
+        List<Map<Mana, Integer>> memo = new ArrayList<>();
+        for (int i = 0; i < boosts.size(); i++) {
+            memo.add(new HashMap<>());
+        }
+        int counters = bestCounters(boosts, 0, potentialPool, memo);
+
+        // rebuild the best subset, played first
+        List<String> played = new ArrayList<>();
+        List<String> others = new ArrayList<>();
+        Mana pool = potentialPool;
+        for (int i = 0; i < boosts.size(); i++) {
+            String boost = boosts.get(i);
+            Mana cost = boostCost(boost);
+            if (cost != null && pool.contains(cost)
+                    && boostCounters(boost) + bestCounters(boosts, i + 1, pool.minus(cost), memo) == bestCounters(boosts, i, pool, memo)) {
+                played.add(boost);
+                pool = pool.minus(cost);
+            } else {
+                others.add(boost);
+            }
+        }
+        played.addAll(others);
+        return Sim.builder().counters(counters).boosts(played).build();
+    }
+
+    private int bestCounters(List<String> boosts, int index, Mana pool, List<Map<Mana, Integer>> memo) {
+        if (index >= boosts.size() || pool.isEmpty()) {
+            return 0;
+        }
+        Integer best = memo.get(index).get(pool);
+        if (best == null) {
+            // skip the boost...
+            best = bestCounters(boosts, index + 1, pool, memo);
+            // ... or play it
+            Mana cost = boostCost(boosts.get(index));
+            if (cost != null && pool.contains(cost)) {
+                best = Math.max(best, boostCounters(boosts.get(index)) + bestCounters(boosts, index + 1, pool.minus(cost), memo));
+            }
+            memo.get(index).put(pool, best);
+        }
+        return best;
+    }
+
+    private static Mana boostCost(String boost) {
+        switch (boost) {
+            case RANCOR:
+            case MIGHT_OF_OLD_KROSA:
+            case GROUNDSWELL:
+            case GIANT_GROWTH:
+            case SEAL_OF_STRENGTH:
+            case BLOSSOMING_DEFENSE:
+            case RANGER_S_GUILE:
+                return G;
+            case LARGER_THAN_LIFE:
+                return G1;
+            case VINES_OF_VASTWOOD:
+                return GG;
+            default:
+                return null;
+        }
+    }
+
+    private int boostCounters(String boost) {
+        switch (boost) {
+            case RANCOR:
+            case BLOSSOMING_DEFENSE:
+                return 2;
+            case MIGHT_OF_OLD_KROSA:
+            case LARGER_THAN_LIFE:
+            case VINES_OF_VASTWOOD:
+                return 4;
+            case GROUNDSWELL:
+                return game.isLanded() ? 4 : 2;
+            case GIANT_GROWTH:
+            case SEAL_OF_STRENGTH:
+                return 3;
+            case RANGER_S_GUILE:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
     @Builder
     @Value
-    private static class Sim implements Comparable<Sim> {
+    static class Sim implements Comparable<Sim> {
         final int counters;
         final Collection<String> boosts;
 
@@ -392,26 +444,10 @@ public class InfectDeckPilot extends DeckPilot {
     }
 
     boolean canPay(Mana cost) {
-        // potential mana pool is current pool + untapped lands + petals on board
-        Mana potentialPool = game.getPool()
-                .plus(Mana.of(0, 0, game.countUntapped(MANA_PRODUCERS), 0, 0, 0));
-        return potentialPool.contains(cost);
+        return SOLVER.canPay(game, cost);
     }
 
     void preparePool(Mana cost) {
-        while (!game.canPay(cost)) {
-            Optional<String> producer = game.findFirstUntapped(FOREST, PENDELHAVEN, LOTUS_PETAL);
-            if (producer.isPresent()) {
-                if (producer.get().equals(LOTUS_PETAL)) {
-                    game.sacrifice(LOTUS_PETAL).add(G);
-                } else {
-                    // a land
-                    game.tapLandForMana(producer.get(), G);
-                }
-            } else {
-                // can't preparePool !!!
-                return;
-            }
-        }
+        SOLVER.preparePool(game, cost);
     }
 }
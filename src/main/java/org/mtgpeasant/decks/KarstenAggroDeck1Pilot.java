@@ -25,6 +25,12 @@ public class KarstenAggroDeck1Pilot extends DeckPilot {
         super(game);
     }
 
+    @Override
+    public boolean reset() {
+        // stateless
+        return true;
+    }
+
     /**
      * The simple idea is that we're keeping a hand if it contains between 2 and 5 lands and at least one spell of 3 mana or less.
      * <p>
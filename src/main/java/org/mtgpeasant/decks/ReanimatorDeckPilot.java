@@ -5,10 +5,11 @@ import org.mtgpeasant.perfectdeck.common.cards.Cards;
 import org.mtgpeasant.perfectdeck.common.matchers.MulliganRules;
 import org.mtgpeasant.perfectdeck.goldfish.DeckPilot;
 import org.mtgpeasant.perfectdeck.goldfish.Game;
+import org.mtgpeasant.perfectdeck.goldfish.ManaSolver;
+import org.mtgpeasant.perfectdeck.goldfish.ManaSource;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.Optional;
 
 public class ReanimatorDeckPilot extends DeckPilot {
 //    boolean firstCreaKilled = false;
@@ -41,11 +42,23 @@ public class ReanimatorDeckPilot extends DeckPilot {
     // ordered by power / interest to discard
     private static String[] CREATURES = new String[]{PATHRAZER_OF_ULAMOG, ULAMOG_S_CRUSHER, HAND_OF_EMRAKUL, GREATER_SANDWURM};
 
+    // lands on board first, then land drop, then cards from hand
+    private static final ManaSolver SOLVER = new ManaSolver(
+            ManaSource.builder().card(CRUMBLING_VESTIGE).kind(ManaSource.Kind.TAP).build(),
+            ManaSource.builder().card(MOUNTAIN).kind(ManaSource.Kind.TAP).colors("R").build(),
+            ManaSource.builder().card(SWAMP).kind(ManaSource.Kind.TAP).colors("B").build(),
+            ManaSource.builder().card(MOUNTAIN).kind(ManaSource.Kind.LAND_DROP).colors("R").cost(1).build(),
+            ManaSource.builder().card(SWAMP).kind(ManaSource.Kind.LAND_DROP).colors("B").cost(1).build(),
+            ManaSource.builder().card(CRUMBLING_VESTIGE).kind(ManaSource.Kind.LAND_DROP).colors("BR").cost(1).build(),
+            ManaSource.builder().card(SIMIAN_SPIRIT_GUIDE).kind(ManaSource.Kind.DISCARD).colors("R").cost(2).build(),
+            ManaSource.builder().card(LOTUS_PETAL).kind(ManaSource.Kind.DISCARD).colors("BUGRW").cost(3).build()
+    );
+
     private static MulliganRules rules;
 
     static {
         try {
-            rules = MulliganRules.parse(new InputStreamReader(ReanimatorDeckPilot.class.getResourceAsStream("/reanimator-rules.txt")));
+            rules = MulliganRules.parse(new InputStreamReader(ReanimatorDeckPilot.class.getResourceAsStream("/reanimator-rules.txt"))).compile();
         } catch (IOException e) {
             rules = null;
             System.err.println(e);
@@ -56,6 +69,12 @@ public class ReanimatorDeckPilot extends DeckPilot {
         super(game);
     }
 
+    @Override
+    public boolean reset() {
+        // stateless
+        return true;
+    }
+
     @Override
     public boolean keepHand(Cards hand) {
         if (game.getMulligans() >= 3) {
@@ -335,7 +354,7 @@ public class ReanimatorDeckPilot extends DeckPilot {
     Mana landsProduction(boolean untapped) {
         if (untapped) {
             // untapped lands only
-            return Mana.of(game.getBoard().count(SWAMP) - game.getTapped().count(SWAMP), 0, 0, game.getBoard().count(MOUNTAIN) - game.getTapped().count(MOUNTAIN), 0, game.getBoard().count(CRUMBLING_VESTIGE) - game.getTapped().count(CRUMBLING_VESTIGE));
+            return Mana.of(game.countUntapped(SWAMP), 0, 0, game.countUntapped(MOUNTAIN), 0, game.countUntapped(CRUMBLING_VESTIGE));
         } else {
             // total lands production
             return Mana.of(game.getBoard().count(SWAMP), 0, 0, game.getBoard().count(MOUNTAIN), 0, game.getBoard().count(CRUMBLING_VESTIGE));
@@ -343,210 +362,11 @@ public class ReanimatorDeckPilot extends DeckPilot {
     }
 
     boolean canPay(Mana toPay) {
-        // draw required X from Vestiges
-        int untappedVestiges = game.getBoard().count(CRUMBLING_VESTIGE) - game.getTapped().count(CRUMBLING_VESTIGE);
-        if (toPay.getX() > 0 && untappedVestiges > 0) {
-            int nb = Math.min(toPay.getX(), untappedVestiges);
-            untappedVestiges -= nb;
-            toPay = toPay.minus(Mana.of(0, 0, 0, 0, 0, nb));
-        }
-        // draw required B from Swamps
-        int untappedSwamps = game.getBoard().count(SWAMP) - game.getTapped().count(SWAMP);
-        if (toPay.getB() > 0 && untappedSwamps > 0) {
-            int nb = Math.min(toPay.getB(), untappedSwamps);
-            untappedSwamps -= nb;
-            toPay = toPay.minus(Mana.of(nb, 0, 0, 0, 0, 0));
-        }
-        // draw required R from Mountains
-        int untappedMountains = game.getBoard().count(MOUNTAIN) - game.getTapped().count(MOUNTAIN);
-        if (toPay.getR() > 0 && untappedMountains > 0) {
-            int nb = Math.min(toPay.getR(), untappedMountains);
-            untappedMountains -= nb;
-            toPay = toPay.minus(Mana.of(0, 0, 0, nb, 0, 0));
-        }
-
-        // pay remaining cost with: land drop + simian + petal
-        boolean landed = game.isLanded();
-        int simiansInHand = game.getHand().count(SIMIAN_SPIRIT_GUIDE);
-        int petalsInHand = game.getHand().count(LOTUS_PETAL);
-
-        while (!toPay.isEmpty()) {
-            if (toPay.getB() > 0) {
-                if (!landed && game.getHand().findFirst(SWAMP, CRUMBLING_VESTIGE).isPresent()) {
-                    toPay = toPay.minus(B);
-                    landed = true;
-                } else if (petalsInHand > 0) {
-                    int nb = Math.min(toPay.getB(), petalsInHand);
-                    petalsInHand -= nb;
-                    toPay = toPay.minus(Mana.of(nb, 0, 0, 0, 0, 0));
-                } else {
-                    // can't pay B :(
-                    return false;
-                }
-            } else if (toPay.getR() > 0) {
-                if (!landed && game.getHand().findFirst(MOUNTAIN, CRUMBLING_VESTIGE).isPresent()) {
-                    toPay = toPay.minus(R);
-                    landed = true;
-                } else if (simiansInHand > 0) {
-                    int nb = Math.min(toPay.getR(), simiansInHand);
-                    simiansInHand -= nb;
-                    toPay = toPay.minus(Mana.of(0, 0, 0, nb, 0, 0));
-                } else if (petalsInHand > 0) {
-                    int nb = Math.min(toPay.getR(), petalsInHand);
-                    petalsInHand -= nb;
-                    toPay = toPay.minus(Mana.of(0, 0, 0, nb, 0, 0));
-                } else {
-                    // can't pay R :(
-                    return false;
-                }
-            } else if (toPay.getX() > 0) {
-                if (untappedMountains > 0) {
-                    int nb = Math.min(toPay.getX(), untappedMountains);
-                    untappedMountains -= nb;
-                    toPay = toPay.minus(Mana.of(0, 0, 0, 0, 0, nb));
-                } else if (untappedSwamps > 0) {
-                    int nb = Math.min(toPay.getX(), untappedSwamps);
-                    untappedSwamps -= nb;
-                    toPay = toPay.minus(Mana.of(0, 0, 0, 0, 0, nb));
-                } else if (!landed && game.getHand().findFirst(MOUNTAIN, SWAMP, CRUMBLING_VESTIGE).isPresent()) {
-                    toPay = toPay.minus(X);
-                    landed = true;
-                } else if (simiansInHand > 0) {
-                    int nb = Math.min(toPay.getX(), simiansInHand);
-                    simiansInHand -= nb;
-                    toPay = toPay.minus(Mana.of(0, 0, 0, 0, 0, nb));
-                } else if (petalsInHand > 0) {
-                    int nb = Math.min(toPay.getX(), petalsInHand);
-                    petalsInHand -= nb;
-                    toPay = toPay.minus(Mana.of(0, 0, 0, 0, 0, nb));
-                } else {
-                    // can't pay X :(
-                    return false;
-                }
-            }
-        }
-        return true;
+        return SOLVER.canPay(game, toPay);
     }
 
     void pay(Mana toPay) {
-        // draw required X from Vestiges
-        int untappedVestiges = game.getBoard().count(CRUMBLING_VESTIGE) - game.getTapped().count(CRUMBLING_VESTIGE);
-        if (toPay.getX() > 0 && untappedVestiges > 0) {
-            int nb = Math.min(toPay.getX(), untappedVestiges);
-            for (int i = 0; i < nb; i++) {
-                game.tapLandForMana(CRUMBLING_VESTIGE, X);
-            }
-            untappedVestiges -= nb;
-            toPay = toPay.minus(Mana.of(0, 0, 0, 0, 0, nb));
-        }
-        // draw required B from Swamps
-        int untappedSwamps = game.getBoard().count(SWAMP) - game.getTapped().count(SWAMP);
-        if (toPay.getB() > 0 && untappedSwamps > 0) {
-            int nb = Math.min(toPay.getB(), untappedSwamps);
-            for (int i = 0; i < nb; i++) {
-                game.tapLandForMana(SWAMP, B);
-            }
-            untappedSwamps -= nb;
-            toPay = toPay.minus(Mana.of(nb, 0, 0, 0, 0, 0));
-        }
-        // draw required R from Mountains
-        int untappedMountains = game.getBoard().count(MOUNTAIN) - game.getTapped().count(MOUNTAIN);
-        if (toPay.getR() > 0 && untappedMountains > 0) {
-            int nb = Math.min(toPay.getR(), untappedMountains);
-            for (int i = 0; i < nb; i++) {
-                game.tapLandForMana(MOUNTAIN, R);
-            }
-            untappedMountains -= nb;
-            toPay = toPay.minus(Mana.of(0, 0, 0, nb, 0, 0));
-        }
-
-        // pay remaining cost with: land drop + simian + petal
-        boolean landed = game.isLanded();
-        int simiansInHand = game.getHand().count(SIMIAN_SPIRIT_GUIDE);
-        int petalsInHand = game.getHand().count(LOTUS_PETAL);
-
-        while (!toPay.isEmpty()) {
-            if (toPay.getB() > 0) {
-                Optional<String> blackProducer = game.getHand().findFirst(SWAMP, CRUMBLING_VESTIGE);
-                if (!landed && blackProducer.isPresent()) {
-                    game.land(blackProducer.get()).tapLandForMana(blackProducer.get(), B);
-                    toPay = toPay.minus(B);
-                    landed = true;
-                } else if (petalsInHand > 0) {
-                    int nb = Math.min(toPay.getB(), petalsInHand);
-                    for (int i = 0; i < nb; i++) {
-                        game.discard(LOTUS_PETAL).add(B);
-                    }
-                    petalsInHand -= nb;
-                    toPay = toPay.minus(Mana.of(nb, 0, 0, 0, 0, 0));
-                } else {
-                    // can't pay B :(
-                    throw new RuntimeException("Couldn't pay " + toPay);
-                }
-            } else if (toPay.getR() > 0) {
-                Optional<String> redProducer = game.getHand().findFirst(MOUNTAIN, CRUMBLING_VESTIGE);
-                if (!landed && redProducer.isPresent()) {
-                    game.land(redProducer.get()).tapLandForMana(redProducer.get(), R);
-                    toPay = toPay.minus(R);
-                    landed = true;
-                } else if (simiansInHand > 0) {
-                    int nb = Math.min(toPay.getR(), simiansInHand);
-                    for (int i = 0; i < nb; i++) {
-                        game.discard(SIMIAN_SPIRIT_GUIDE).add(R);
-                    }
-                    simiansInHand -= nb;
-                    toPay = toPay.minus(Mana.of(0, 0, 0, nb, 0, 0));
-                } else if (petalsInHand > 0) {
-                    int nb = Math.min(toPay.getR(), petalsInHand);
-                    for (int i = 0; i < nb; i++) {
-                        game.discard(LOTUS_PETAL).add(R);
-                    }
-                    petalsInHand -= nb;
-                    toPay = toPay.minus(Mana.of(0, 0, 0, nb, 0, 0));
-                } else {
-                    // can't pay R :(
-                    throw new RuntimeException("Couldn't pay " + toPay);
-                }
-            } else if (toPay.getX() > 0) {
-                Optional<String> xProducer = game.getHand().findFirst(MOUNTAIN, SWAMP, CRUMBLING_VESTIGE);
-                if (untappedMountains > 0) {
-                    int nb = Math.min(toPay.getX(), untappedMountains);
-                    for (int i = 0; i < nb; i++) {
-                        game.tapLandForMana(MOUNTAIN, R);
-                    }
-                    untappedMountains -= nb;
-                    toPay = toPay.minus(Mana.of(0, 0, 0, 0, 0, nb));
-                } else if (untappedSwamps > 0) {
-                    int nb = Math.min(toPay.getX(), untappedSwamps);
-                    for (int i = 0; i < nb; i++) {
-                        game.tapLandForMana(SWAMP, B);
-                    }
-                    untappedSwamps -= nb;
-                    toPay = toPay.minus(Mana.of(0, 0, 0, 0, 0, nb));
-                } else if (!landed && xProducer.isPresent()) {
-                    game.land(xProducer.get()).tapLandForMana(xProducer.get(), X);
-                    toPay = toPay.minus(X);
-                    landed = true;
-                } else if (simiansInHand > 0) {
-                    int nb = Math.min(toPay.getX(), simiansInHand);
-                    for (int i = 0; i < nb; i++) {
-                        game.discard(SIMIAN_SPIRIT_GUIDE).add(R);
-                    }
-                    simiansInHand -= nb;
-                    toPay = toPay.minus(Mana.of(0, 0, 0, 0, 0, nb));
-                } else if (petalsInHand > 0) {
-                    int nb = Math.min(toPay.getX(), petalsInHand);
-                    for (int i = 0; i < nb; i++) {
-                        game.discard(LOTUS_PETAL).add(B);
-                    }
-                    petalsInHand -= nb;
-                    toPay = toPay.minus(Mana.of(0, 0, 0, 0, 0, nb));
-                } else {
-                    // can't pay X :(
-                    throw new RuntimeException("Couldn't pay " + toPay);
-                }
-            }
-        }
+        SOLVER.preparePool(game, toPay);
     }
 
     @Override
@@ -17,6 +17,12 @@ public class SpikesDeckPilot extends DeckPilot {
         super(game);
     }
 
+    @Override
+    public boolean reset() {
+        // stateless
+        return true;
+    }
+
     /**
      * OTD, premier mulligan si on a 0, 1, 4, 5, 6 ou 7 terrains
      * OTD, second mulligan si on a 0, 5, 6 ou 7 terrains ; si on a 1 ou 2 terrains on met une foudre en dessous ; si on a 3 ou 4 terrains on met un terrain en dessous.
@@ -1,7 +1,8 @@
 package org.mtgpeasant.perfectdeck;
 
-import com.google.common.base.Predicates;
 import com.google.common.base.Strings;
+import lombok.Builder;
+import lombok.Value;
 import org.mtgpeasant.perfectdeck.common.cards.Deck;
 import org.mtgpeasant.perfectdeck.common.matchers.Matchers;
 import org.mtgpeasant.perfectdeck.common.matchers.MulliganRules;
@@ -9,17 +10,26 @@ import org.mtgpeasant.perfectdeck.common.matchers.Validation;
 import org.mtgpeasant.perfectdeck.common.utils.ParseError;
 import org.mtgpeasant.perfectdeck.common.utils.TableFormatter;
 import org.mtgpeasant.perfectdeck.goldfish.DeckPilot;
+import org.mtgpeasant.perfectdeck.goldfish.GameStatsCube;
+import org.mtgpeasant.perfectdeck.goldfish.GameTraces;
 import org.mtgpeasant.perfectdeck.goldfish.GoldfishSimulator;
 import org.mtgpeasant.perfectdeck.mulligan.MulliganSimulator;
+import org.mtgpeasant.perfectdeck.optimizer.Contestant;
+import org.mtgpeasant.perfectdeck.optimizer.DeckContestants;
+import org.mtgpeasant.perfectdeck.optimizer.DeckOptimizer;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 
 import java.io.File;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -30,6 +40,10 @@ public class Tools {
         return String.format("%.1f%%", (100f * (float) count / (float) total));
     }
 
+    private static String percent(double rate) {
+        return String.format("%.1f%%", 100 * rate);
+    }
+
     private static String f2d(double number) {
         return String.format("%.2f", number);
     }
@@ -39,6 +53,9 @@ public class Tools {
             @ShellOption(value = {"-D", "--deck"}, help = "the deck to test") File deckFile,
             @ShellOption(value = {"-R", "--rules"}, help = "opening hand keeping rules") File matchersFile,
             @ShellOption(value = {"-I", "--iterations"}, help = "number of simulated iterations", defaultValue = "1000") int iterations,
+            @ShellOption(value = {"-x", "--exact"}, help = "computes exact rates by enumerating all distinct hands (instead of simulating iterations)", defaultValue = "false") boolean exact,
+            @ShellOption(value = {"--seed"}, help = "random seed (to reproduce a simulation)", defaultValue = ShellOption.NULL) Long seed,
+            @ShellOption(value = {"-p", "--precision"}, help = "stops simulating draws once the 95% confidence interval of every rate is below this value (ex: 0.01 for ±1%), iterations being the maximum", defaultValue = "0") double precision,
             @ShellOption(value = {"-n", "--nostats"}, help = "disable statistics computation (logs only)", defaultValue = "false") boolean noStats,
             @ShellOption(value = {"-v", "--verbose"}, help = "produces verbose output", defaultValue = "false") boolean verbose
 
@@ -69,26 +86,32 @@ public class Tools {
 
         // simulate draws
         if (verbose) {
-            System.out.println("=== SIMULATE " + iterations + " DRAWS ===");
+            System.out.println(exact ? "=== ENUMERATE ALL HANDS ===" : "=== SIMULATE " + iterations + " DRAWS ===");
         }
         long startTime = System.currentTimeMillis();
-        MulliganSimulator simulator = MulliganSimulator.builder()
+        MulliganSimulator.MulliganSimulatorBuilder builder = MulliganSimulator.builder()
                 .iterations(iterations)
+                .exact(exact)
+                .precision(precision)
                 .rules(rules)
-                .verbose(verbose)
-                .build();
+                .verbose(verbose);
+        if (seed != null) {
+            builder.seed(seed);
+        }
+        MulliganSimulator simulator = builder.build();
         MulliganSimulator.DeckMatches matches = simulator.simulate(deck);
         if (verbose) {
             System.out.println();
         }
 
         if (!noStats) {
-            System.out.println("=== STATS (elapsed " + (System.currentTimeMillis() - startTime) + "ms) ===");
+            System.out.println("=== " + (exact ? "EXACT STATS (" + matches.getIterations() + " distinct hands, " : "STATS (seed " + simulator.getSeed() + ", " + matches.getIterations() + " draws, precision ±" + percent(matches.getPrecision()) + ", ") + "elapsed " + (System.currentTimeMillis() - startTime) + "ms) ===");
             for (Matchers.NamedMatcher criteria : rules.getCriteria()) {
-                int count = matches.getMatchCount(criteria);
-                System.out.println(criteria.getName() + ": " + percent(count, iterations));
+                System.out.println(criteria.getName() + ": " + percent(matches.getMatchRate(criteria)));
             }
-            System.out.println("no match: " + percent(matches.getNoMatchCount(), iterations));
+            System.out.println("no match: " + percent(matches.getNoMatchRate()));
+            System.out.println();
+            System.out.println("hand cache: " + matches.getCacheStats().hitCount() + " hits, " + matches.getCacheStats().missCount() + " misses (" + percent(matches.getCacheStats().hitCount(), matches.getCacheStats().requestCount()) + " hit rate)");
         }
     }
 
@@ -99,10 +122,83 @@ public class Tools {
             @ShellOption(value = {"-I", "--iterations"}, help = "number of simulated iterations", defaultValue = "1000") int iterations,
             @ShellOption(value = {"-s", "--start"}, help = "starting case (one of: OTP, OTD, BOTH)", defaultValue = "BOTH") GoldfishSimulator.Start start,
             @ShellOption(value = {"-M", "--maxturns"}, help = "maximum number of turn in a game before giving up the simulation", defaultValue = "15") int maxTurns,
+            @ShellOption(value = {"--seed"}, help = "random seed (to reproduce a simulation)", defaultValue = ShellOption.NULL) Long seed,
+            @ShellOption(value = {"-p", "--precision"}, help = "stops simulating games once the 95% confidence interval of the average win turn is below this value (in turns), iterations being the maximum", defaultValue = "0") double precision,
             @ShellOption(value = {"-n", "--nostats"}, help = "disable statistics computation (logs only)", defaultValue = "false") boolean noStats,
-            @ShellOption(value = {"-v", "--verbose"}, help = "produces verbose output", defaultValue = "false") boolean verbose
+            @ShellOption(value = {"-v", "--verbose"}, help = "produces verbose output", defaultValue = "false") boolean verbose,
+            @ShellOption(value = {"--replay"}, help = "replays a single game from its seed (with verbose output)", defaultValue = ShellOption.NULL) Long replay,
+            @ShellOption(value = {"--seeds"}, help = "lists the seed of a sample game for each distinct result", defaultValue = "false") boolean seeds
 
     ) throws IOException, ClassNotFoundException {
+        goldfish(deckFile, pilotClassName, GoldfishOptions.builder()
+                .iterations(iterations)
+                .start(start)
+                .maxTurns(maxTurns)
+                .seed(seed)
+                .precision(precision)
+                .noStats(noStats)
+                .verbose(verbose)
+                .replay(replay)
+                .seeds(seeds)
+                .build());
+    }
+
+    @ShellMethod(value = "Simulates goldfish games and writes traces of failed games (and games matching trace options) to a file", key = "goldfish-trace")
+    public void goldfishTrace(
+            @ShellOption(value = {"-D", "--deck"}, help = "the deck to test") File deckFile,
+            @ShellOption(value = {"-P", "--pilot"}, help = "Deck pilot class name") String pilotClassName,
+            @ShellOption(value = {"-I", "--iterations"}, help = "number of simulated iterations", defaultValue = "1000") int iterations,
+            @ShellOption(value = {"-s", "--start"}, help = "starting case (one of: OTP, OTD, BOTH)", defaultValue = "BOTH") GoldfishSimulator.Start start,
+            @ShellOption(value = {"-M", "--maxturns"}, help = "maximum number of turn in a game before giving up the simulation", defaultValue = "15") int maxTurns,
+            @ShellOption(value = {"--seed"}, help = "random seed (to reproduce a simulation)", defaultValue = ShellOption.NULL) Long seed,
+            @ShellOption(value = {"-n", "--nostats"}, help = "disable statistics computation (logs only)", defaultValue = "false") boolean noStats,
+            @ShellOption(value = {"-v", "--verbose"}, help = "produces verbose output", defaultValue = "false") boolean verbose,
+            @ShellOption(value = {"-T", "--trace"}, help = "file where traces of failed games (and games matching trace options) are written; failed games are then counted instead of aborting the run") File traceFile,
+            @ShellOption(value = {"--trace-turn"}, help = "also trace games won on this turn", defaultValue = ShellOption.NULL) Integer traceTurn,
+            @ShellOption(value = {"--trace-mulligans"}, help = "also trace games with this number of mulligans taken", defaultValue = ShellOption.NULL) Integer traceMulligans,
+            @ShellOption(value = {"--trace-max"}, help = "maximum number of traced games", defaultValue = "100") int traceMax
+
+    ) throws IOException, ClassNotFoundException {
+        goldfish(deckFile, pilotClassName, GoldfishOptions.builder()
+                .iterations(iterations)
+                .start(start)
+                .maxTurns(maxTurns)
+                .seed(seed)
+                .noStats(noStats)
+                .verbose(verbose)
+                .traceFile(traceFile)
+                .traceTurn(traceTurn)
+                .traceMulligans(traceMulligans)
+                .traceMax(traceMax)
+                .build());
+    }
+
+    /**
+     * Options of the goldfish commands, so that trace options don't change the signature of the goldfish command
+     */
+    @Builder
+    @Value
+    private static class GoldfishOptions {
+        @Builder.Default
+        final int iterations = 1000;
+        @Builder.Default
+        final GoldfishSimulator.Start start = GoldfishSimulator.Start.BOTH;
+        @Builder.Default
+        final int maxTurns = 15;
+        final Long seed;
+        final double precision;
+        final boolean noStats;
+        final boolean verbose;
+        final Long replay;
+        final boolean seeds;
+        final File traceFile;
+        final Integer traceTurn;
+        final Integer traceMulligans;
+        @Builder.Default
+        final int traceMax = 100;
+    }
+
+    private void goldfish(File deckFile, String pilotClassName, GoldfishOptions options) throws IOException, ClassNotFoundException {
         Class<? extends DeckPilot> pilotClass = (Class<? extends DeckPilot>) Class.forName(pilotClassName);
 
         Deck deck = Deck.parse(new FileReader(deckFile));
@@ -111,31 +207,68 @@ public class Tools {
         System.out.println();
 
         // simulate games
-        if (verbose) {
-            System.out.println("=== SIMULATE " + iterations + " GAMES ===");
+        if (options.isVerbose()) {
+            System.out.println("=== SIMULATE " + options.getIterations() + " GAMES ===");
         }
         long startTime = System.currentTimeMillis();
-        GoldfishSimulator simulator = GoldfishSimulator.builder()
-                .iterations(iterations)
+        GoldfishSimulator.GoldfishSimulatorBuilder builder = GoldfishSimulator.builder()
+                .iterations(options.getIterations())
                 .pilotClass(pilotClass)
-                .start(start)
-                .maxTurns(maxTurns)
-                .verbose(verbose)
-                .build();
+                .start(options.getStart())
+                .maxTurns(options.getMaxTurns())
+                .precision(options.getPrecision())
+                .verbose(options.isVerbose());
+        if (options.getSeed() != null) {
+            builder.seed(options.getSeed());
+        }
+        if (options.getReplay() != null) {
+            GoldfishSimulator.GameResult result = builder.build().replay(deck, options.getReplay());
+            System.out.println("=== REPLAYED GAME (seed " + options.getReplay() + "): " + result.getOutcome() + " on turn " + result.getEndTurn() + " after " + result.getMulligans() + " mulligans " + (result.isOnThePlay() ? "OTP" : "OTD") + " ===");
+            return;
+        }
+        GameTraces traces = null;
+        File traceFile = options.getTraceFile();
+        if (traceFile != null) {
+            Integer traceTurn = options.getTraceTurn();
+            Integer traceMulligans = options.getTraceMulligans();
+            // without trace options, only failed games are traced
+            Predicate<GoldfishSimulator.GameResult> filter = result -> traceTurn != null || traceMulligans != null;
+            if (traceTurn != null) {
+                filter = filter.and(result -> result.getOutcome() == GoldfishSimulator.GameResult.Outcome.WON && result.getEndTurn() == traceTurn);
+            }
+            if (traceMulligans != null) {
+                filter = filter.and(result -> result.getMulligans() == traceMulligans);
+            }
+            traces = new GameTraces(new FileWriter(traceFile), filter, options.getTraceMax());
+            builder.traces(traces);
+        }
+        GoldfishSimulator simulator = builder.build();
 
-        GoldfishSimulator.DeckStats stats = simulator.simulate(deck);
-        if (verbose) {
+        GoldfishSimulator.DeckStats stats;
+        try {
+            stats = simulator.simulate(deck);
+        } finally {
+            if (traces != null) {
+                traces.close();
+                System.out.println(traces.getCount() + " game traces written to " + traceFile);
+            }
+        }
+        if (options.isVerbose()) {
             System.out.println();
         }
 
         // dump stats
-        if (!noStats) {
-            System.out.println("=== STATS (elapsed " + (System.currentTimeMillis() - startTime) + "ms) ===");
+        if (!options.isNoStats()) {
+            System.out.println("=== STATS (seed " + simulator.getSeed() + ", " + stats.getIterations() + " games, avg win turn precision ±" + f2d(stats.getPrecision()) + ", elapsed " + (System.currentTimeMillis() - startTime) + "ms) ===");
+            if (stats.getFailed() > 0) {
+                System.out.println(stats.getFailed() + " games failed (see traces)");
+            }
 
-            List<Integer> winTurns = stats.getWinTurns(result -> result.getOutcome() == GoldfishSimulator.GameResult.Outcome.WON)
+            GameStatsCube cube = stats.getCube();
+            List<Integer> winTurns = cube.getWinTurns()
                     .stream()
                     .filter(turn -> {
-                        long count = stats.count(result -> result.getEndTurn() == turn);
+                        long count = cube.count(null, null, null, turn);
                         return moreThanOnePercent(count, stats.getIterations());
                     })
                     .collect(Collectors.toList());
@@ -145,7 +278,7 @@ public class Tools {
             winTurns.forEach(turn -> table.column("win turn " + turn));
 
             // add a row OTP | OTD if both
-            if (start == GoldfishSimulator.Start.BOTH) {
+            if (options.getStart() == GoldfishSimulator.Start.BOTH) {
                 List<String> row = new ArrayList<>(winTurns.size() + 1);
                 row.add("");
 //                row.add("       OTP |        OTD |        avg");
@@ -158,15 +291,15 @@ public class Tools {
             table.row(TableFormatter.SEPARATOR);
 
             // one rows per mulligans taken
-            stats.getMulligans().forEach(mulligansTaken -> {
-                long totalGamesWithThisNumberOfMulligans = stats.count(result -> result.getMulligans() == mulligansTaken);
+            cube.getMulligans().forEach(mulligansTaken -> {
+                long totalGamesWithThisNumberOfMulligans = cube.count(null, mulligansTaken, null, null);
                 if (moreThanOnePercent(totalGamesWithThisNumberOfMulligans, stats.getIterations())) {
                     table.row(computeRow(
                             mulligansTaken + " mulligans (" + percent(totalGamesWithThisNumberOfMulligans, stats.getIterations()) + ")",
-                            start,
-                            stats,
+                            options.getStart(),
+                            cube,
                             winTurns,
-                            result -> result.getMulligans() == mulligansTaken,
+                            mulligansTaken,
                             totalGamesWithThisNumberOfMulligans
                     ));
                 }
@@ -174,35 +307,145 @@ public class Tools {
 
             // last row is global
             table.row(TableFormatter.SEPARATOR);
-            table.row(computeRow("global", start, stats, winTurns, Predicates.alwaysTrue(), stats.getIterations()));
+            table.row(computeRow("global", options.getStart(), cube, winTurns, null, stats.getIterations()));
 
             // dump
             System.out.println(table.build().render());
+
+            if (options.isSeeds()) {
+                System.out.println("=== SAMPLE GAMES (replay with --replay <seed>) ===");
+                stats.getResults().stream()
+                        .sorted(Comparator.comparing(GoldfishSimulator.GameResult::getMulligans)
+                                .thenComparing(GoldfishSimulator.GameResult::getEndTurn)
+                                .thenComparing(result -> !result.isOnThePlay()))
+                        .forEach(result -> System.out.println(result.getMulligans() + " mulligans, " + (result.isOnThePlay() ? "OTP" : "OTD") + ", " + result.getOutcome() + " on turn " + result.getEndTurn() + " (" + result.getCount() + " games): seed " + result.getSeed()));
+            }
         }
     }
 
-    private List<String> computeRow(String title, GoldfishSimulator.Start start, GoldfishSimulator.DeckStats stats, List<Integer> winTurns, Predicate<GoldfishSimulator.GameResult> gamesFilter, long totalGames) {
+    @ShellMethod("Compares two versions of a deck with paired goldfish games (same shuffles for both decks)")
+    public void compare(
+            @ShellOption(value = {"-D", "--deck"}, help = "the reference deck") File deckFile,
+            @ShellOption(value = {"-V", "--variant"}, help = "the other version of the deck") File variantFile,
+            @ShellOption(value = {"-P", "--pilot"}, help = "Deck pilot class name") String pilotClassName,
+            @ShellOption(value = {"-I", "--iterations"}, help = "number of paired games", defaultValue = "10000") int iterations,
+            @ShellOption(value = {"-s", "--start"}, help = "starting case (one of: OTP, OTD, BOTH)", defaultValue = "BOTH") GoldfishSimulator.Start start,
+            @ShellOption(value = {"-M", "--maxturns"}, help = "maximum number of turn in a game before giving up the simulation", defaultValue = "15") int maxTurns,
+            @ShellOption(value = {"--seed"}, help = "random seed (to reproduce a simulation)", defaultValue = ShellOption.NULL) Long seed,
+            @ShellOption(value = {"-p", "--precision"}, help = "stops simulating games once the 95% confidence interval of the difference is below this value (in turns), iterations being the maximum", defaultValue = "0") double precision
+    ) throws IOException, ClassNotFoundException {
+        Class<? extends DeckPilot> pilotClass = (Class<? extends DeckPilot>) Class.forName(pilotClassName);
+        Deck deck = Deck.parse(new FileReader(deckFile));
+        Deck variant = Deck.parse(new FileReader(variantFile));
+
+        long startTime = System.currentTimeMillis();
+        GoldfishSimulator.GoldfishSimulatorBuilder builder = GoldfishSimulator.builder()
+                .iterations(iterations)
+                .pilotClass(pilotClass)
+                .start(start)
+                .maxTurns(maxTurns)
+                .precision(precision);
+        if (seed != null) {
+            builder.seed(seed);
+        }
+        GoldfishSimulator simulator = builder.build();
+        GoldfishSimulator.PairedStats stats = simulator.compare(deck, variant);
+
+        System.out.println("=== PAIRED STATS (seed " + simulator.getSeed() + ", " + stats.getIterations() + " games, elapsed " + (System.currentTimeMillis() - startTime) + "ms) ===");
+        System.out.println("deck avg win turn: " + f2d(stats.getStats().getCube().getAverageWinTurn(null, null)));
+        System.out.println("variant avg win turn: " + f2d(stats.getVariantStats().getCube().getAverageWinTurn(null, null)));
+        System.out.println("difference: " + (stats.getDifference() >= 0 ? "+" : "") + f2d(stats.getDifference()) + " ±" + f2d(stats.getPrecision()) + " turns (±" + f2d(stats.getUnpairedPrecision()) + " with independent games)");
+    }
+
+    @ShellMethod("Optimizes a deck by swapping cards between main deck and sideboard (within slots), either on goldfish average win turn (with a pilot) or on keep rate (with mulligan rules)")
+    public void optimize(
+            @ShellOption(value = {"-D", "--deck"}, help = "the deck to optimize (swappable cards must be in the sideboard)") File deckFile,
+            @ShellOption(value = {"-S", "--slots"}, help = "swappable cards with min and max copies in the main deck (ex: 'lightning bolt=8..16; savannah lions=12..20')") String slots,
+            @ShellOption(value = {"-P", "--pilot"}, help = "Deck pilot class name (optimizes goldfish average win turn)", defaultValue = ShellOption.NULL) String pilotClassName,
+            @ShellOption(value = {"-R", "--rules"}, help = "opening hand keeping rules (optimizes keep rate)", defaultValue = ShellOption.NULL) File matchersFile,
+            @ShellOption(value = {"-I", "--iterations"}, help = "maximum number of iterations to evaluate a variant", defaultValue = "10000") int iterations,
+            @ShellOption(value = {"-M", "--maxturns"}, help = "maximum number of turn in a game before giving up the simulation", defaultValue = "15") int maxTurns,
+            @ShellOption(value = {"--strategy"}, help = "local search strategy (one of: HILL_CLIMBING, ANNEALING)", defaultValue = "HILL_CLIMBING") DeckOptimizer.Strategy strategy,
+            @ShellOption(value = {"--steps"}, help = "maximum number of steps", defaultValue = "50") int steps,
+            @ShellOption(value = {"--seed"}, help = "random seed (to reproduce an optimization)", defaultValue = ShellOption.NULL) Long seed,
+            @ShellOption(value = {"-v", "--verbose"}, help = "produces verbose output", defaultValue = "false") boolean verbose
+    ) throws IOException, ClassNotFoundException {
+        Deck deck = Deck.parse(new FileReader(deckFile));
+
+        System.out.println("Deck loaded: " + deck.getMain().size() + " cards (" + deck.getSideboard().size() + " cards in sideboard)");
+        System.out.println();
+
+        // common random numbers: all variants are evaluated with the same seed
+        long simulationSeed = seed == null ? ThreadLocalRandom.current().nextLong() : seed;
+        Function<Deck, ? extends Contestant> objective;
+        if (pilotClassName != null) {
+            Class<? extends DeckPilot> pilotClass = (Class<? extends DeckPilot>) Class.forName(pilotClassName);
+            GoldfishSimulator simulator = GoldfishSimulator.builder()
+                    .pilotClass(pilotClass)
+                    .maxTurns(maxTurns)
+                    .seed(simulationSeed)
+                    .build();
+            objective = variant -> new DeckContestants.Goldfish(simulator, variant);
+        } else if (matchersFile != null) {
+            MulliganRules rules = MulliganRules.parse(new FileReader(matchersFile));
+            if (!rules.getErrors().isEmpty()) {
+                System.out.println("=== ERRORS ===");
+                for (ParseError error : rules.getErrors()) {
+                    System.out.println(error.getMessage());
+                }
+                return;
+            }
+            MulliganSimulator simulator = MulliganSimulator.builder()
+                    .rules(rules)
+                    .seed(simulationSeed)
+                    .build();
+            objective = variant -> new DeckContestants.Mulligans(simulator, variant);
+        } else {
+            System.out.println("=== ERRORS ===");
+            System.out.println("-> either a pilot or mulligan rules are required");
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        DeckOptimizer.Result result = DeckOptimizer.builder()
+                .slots(DeckOptimizer.Slot.parse(slots))
+                .objective(objective)
+                .strategy(strategy)
+                .iterations(iterations)
+                .maxSteps(steps)
+                .seed(simulationSeed)
+                .verbose(verbose)
+                .build()
+                .optimize(deck);
+
+        System.out.println("=== BEST DECK (seed " + simulationSeed + ", " + result.getSteps() + " steps, " + result.getVariants() + " variants, elapsed " + (System.currentTimeMillis() - startTime) + "ms) ===");
+        System.out.println(result.getDeckList());
+        System.out.println(result.getEvaluation());
+    }
+
+    /**
+     * @param mulligans mulligans taken ({@code null} for all games)
+     */
+    private List<String> computeRow(String title, GoldfishSimulator.Start start, GameStatsCube cube, List<Integer> winTurns, Integer mulligans, long totalGames) {
         List<String> row = new ArrayList<>(winTurns.size() + 1);
         row.add(title);
 
         // first column: avg win turn
         String avg = "";
         if (start != GoldfishSimulator.Start.OTD) {
-            Predicate<GoldfishSimulator.GameResult> otpFilter = gamesFilter.and(result -> result.isOnThePlay());
-            avg += Strings.padStart(f2d(stats.getAverageWinTurn(otpFilter)) + " ±" + f2d(stats.getWinTurnMAD(otpFilter)), 10, ' ');
+            avg += Strings.padStart(f2d(cube.getAverageWinTurn(true, mulligans)) + " ±" + f2d(cube.getWinTurnMAD(true, mulligans)), 10, ' ');
         }
         if (start == GoldfishSimulator.Start.BOTH) {
             avg += " | ";
         }
         if (start != GoldfishSimulator.Start.OTP) {
-            Predicate<GoldfishSimulator.GameResult> otdFilter = gamesFilter.and(result -> !result.isOnThePlay());
-            avg += Strings.padStart(f2d(stats.getAverageWinTurn(otdFilter)) + " ±" + f2d(stats.getWinTurnMAD(otdFilter)), 10, ' ');
+            avg += Strings.padStart(f2d(cube.getAverageWinTurn(false, mulligans)) + " ±" + f2d(cube.getWinTurnMAD(false, mulligans)), 10, ' ');
         }
 //        if (start == GoldfishSimulator.Start.BOTH) {
 //            avg += " | ";
 //        }
 //        if (start == GoldfishSimulator.Start.BOTH) {
-//            avg += Strings.padStart(f2d(stats.getAverageWinTurn(gamesFilter)) + " ±" + f2d(stats.getWinTurnMAD(gamesFilter)),10, ' ');
+//            avg += Strings.padStart(f2d(cube.getAverageWinTurn(null, mulligans)) + " ±" + f2d(cube.getWinTurnMAD(null, mulligans)),10, ' ');
 //        }
         row.add(avg);
 
@@ -210,7 +453,7 @@ public class Tools {
         winTurns.forEach(turn -> {
             String cell = "";
             if (start != GoldfishSimulator.Start.OTD) {
-                long count = stats.count(gamesFilter.and(result -> result.getEndTurn() == turn && result.isOnThePlay()));
+                long count = cube.count(true, mulligans, null, turn);
                 long total = start == GoldfishSimulator.Start.BOTH ? totalGames / 2 : totalGames;
                 cell += Strings.padStart(percent(count, total), 5, ' ');
             }
@@ -218,7 +461,7 @@ public class Tools {
                 cell += " | ";
             }
             if (start != GoldfishSimulator.Start.OTP) {
-                long count = stats.count(gamesFilter.and(result -> result.getEndTurn() == turn && !result.isOnThePlay()));
+                long count = cube.count(false, mulligans, null, turn);
                 long total = start == GoldfishSimulator.Start.BOTH ? totalGames / 2 : totalGames;
                 cell += Strings.padStart(percent(count, total), 5, ' ');
             }
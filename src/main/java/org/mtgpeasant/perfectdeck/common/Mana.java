@@ -1,24 +1,73 @@
 package org.mtgpeasant.perfectdeck.common;
 
 import com.google.common.base.Strings;
-import lombok.Value;
+import lombok.EqualsAndHashCode;
 
-@Value
-public class Mana {
-    final int B;
-    final int U;
-    final int G;
-    final int R;
-    final int W;
-    final int X;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable amount of mana (B, U, G, R, W and colorless X)
+ * <p>
+ * The six amounts are packed in a single {@code long} (one signed 10 bits lane each, see {@link #LANE_BITS}) so that
+ * arithmetic works on all lanes at once (SWAR).
+ * <p>
+ * Colorless amount may be negative after colored mana was used to pay colorless costs.
+ */
+@EqualsAndHashCode
+public final class Mana {
+    static final int LANE_BITS = 10;
+    static final long LANE_MASK = (1L << LANE_BITS) - 1;
+    static final int B_SHIFT = 0;
+    static final int U_SHIFT = LANE_BITS;
+    static final int G_SHIFT = 2 * LANE_BITS;
+    static final int R_SHIFT = 3 * LANE_BITS;
+    static final int W_SHIFT = 4 * LANE_BITS;
+    static final int X_SHIFT = 5 * LANE_BITS;
+    /**
+     * Highest (sign) bit of each lane
+     */
+    static final long HIGH_BITS = highBits(6);
+    /**
+     * Sign bits of colored lanes
+     */
+    static final long COLORED_HIGH_BITS = highBits(5);
+
+    private static final Mana ZERO = new Mana(0L);
+    private static final Map<String, Mana> PARSED = new ConcurrentHashMap<>();
+
+    final long bits;
+
+    private Mana(long bits) {
+        this.bits = bits;
+    }
+
+    private static long highBits(int lanes) {
+        long high = 0;
+        for (int lane = 0; lane < lanes; lane++) {
+            high |= 1L << (lane * LANE_BITS + LANE_BITS - 1);
+        }
+        return high;
+    }
 
     public static Mana zero() {
-        return new Mana(0, 0, 0, 0, 0, 0);
+        return ZERO;
     }
 
+    /**
+     * Parses a mana cost (ex: {@code 2BR}), parsed costs are cached
+     */
     public static Mana of(String mana) {
-        int b = 0, u = 0, g = 0, r = 0, w = 0;
-        StringBuilder colorless = new StringBuilder();
+        Mana parsed = PARSED.get(mana);
+        if (parsed == null) {
+            parsed = parse(mana);
+            PARSED.putIfAbsent(mana, parsed);
+        }
+        return parsed;
+    }
+
+    private static Mana parse(String mana) {
+        int b = 0, u = 0, g = 0, r = 0, w = 0, x = 0;
         for (char c : mana.toCharArray()) {
             switch (c) {
                 case 'B':
@@ -51,48 +100,143 @@ public class Mana {
                 case '7':
                 case '8':
                 case '9':
-                    colorless.append(c);
+                    x = x * 10 + (c - '0');
                     break;
                 default:
                     // ignore
             }
         }
-
-        return of(b, u, g, r, w, colorless.length() == 0 ? 0 : Integer.parseInt(colorless.toString()));
+        return of(b, u, g, r, w, x);
     }
 
     public static Mana of(int b, int u, int g, int r, int w, int x) {
-        return new Mana(b, u, g, r, w, x);
+        return new Mana(pack(b, u, g, r, w, x));
+    }
+
+    static long pack(int b, int u, int g, int r, int w, int x) {
+        return (b & LANE_MASK) << B_SHIFT
+                | (u & LANE_MASK) << U_SHIFT
+                | (g & LANE_MASK) << G_SHIFT
+                | (r & LANE_MASK) << R_SHIFT
+                | (w & LANE_MASK) << W_SHIFT
+                | (x & LANE_MASK) << X_SHIFT;
+    }
+
+    static Mana of(long bits) {
+        return bits == 0 ? ZERO : new Mana(bits);
+    }
+
+    /**
+     * Returns the mana with the given packed amounts (see {@link #getBits()})
+     */
+    public static Mana ofBits(long bits) {
+        return of(bits);
+    }
+
+    /**
+     * Computes the mana that is missing in the pool to pay the given cost (extra colored mana in pool pays colorless)
+     */
+    public static Mana missing(Mana pool, Mana cost) {
+        return of(missing(pool.bits, cost.bits));
+    }
+
+    /**
+     * Same as {@link #missing(Mana, Mana)}, on packed amounts (no allocation)
+     */
+    public static long missing(long pool, long cost) {
+        int extra = lane(pool, X_SHIFT);
+        long missing = 0;
+        for (int shift = B_SHIFT; shift <= W_SHIFT; shift += LANE_BITS) {
+            int diff = lane(cost, shift) - lane(pool, shift);
+            if (diff > 0) {
+                missing |= (diff & LANE_MASK) << shift;
+            } else {
+                extra -= diff;
+            }
+        }
+        return missing | (Math.max(0, lane(cost, X_SHIFT) - extra) & LANE_MASK) << X_SHIFT;
+    }
+
+    /**
+     * Extracts a (signed) lane
+     */
+    static int lane(long bits, int shift) {
+        return (int) ((bits >> shift) & LANE_MASK) << (32 - LANE_BITS) >> (32 - LANE_BITS);
+    }
+
+    /**
+     * Lane-wise addition (no carry from one lane to the next)
+     */
+    static long add(long a, long b) {
+        return ((a & ~HIGH_BITS) + (b & ~HIGH_BITS)) ^ ((a ^ b) & HIGH_BITS);
+    }
+
+    /**
+     * Lane-wise subtraction (no borrow from one lane to the next)
+     */
+    static long subtract(long a, long b) {
+        return ((a | HIGH_BITS) - (b & ~HIGH_BITS)) ^ ((a ^ ~b) & HIGH_BITS);
+    }
+
+    static int ccm(long bits) {
+        return lane(bits, B_SHIFT) + lane(bits, U_SHIFT) + lane(bits, G_SHIFT) + lane(bits, R_SHIFT) + lane(bits, W_SHIFT) + lane(bits, X_SHIFT);
+    }
+
+    /**
+     * Colored amounts must all be available, and extra colored mana may pay colorless costs
+     */
+    static boolean contains(long a, long b) {
+        return (subtract(a, b) & COLORED_HIGH_BITS) == 0 && ccm(a) >= ccm(b);
+    }
+
+    /**
+     * Returns the packed amounts: equal manas have equal bits, so they can be used as allocation-free keys
+     */
+    public long getBits() {
+        return bits;
+    }
+
+    public int getB() {
+        return lane(bits, B_SHIFT);
+    }
+
+    public int getU() {
+        return lane(bits, U_SHIFT);
+    }
+
+    public int getG() {
+        return lane(bits, G_SHIFT);
+    }
+
+    public int getR() {
+        return lane(bits, R_SHIFT);
+    }
+
+    public int getW() {
+        return lane(bits, W_SHIFT);
+    }
+
+    public int getX() {
+        return lane(bits, X_SHIFT);
     }
 
     public int ccm() {
-        return B + U + G + R + W + X;
+        return ccm(bits);
     }
 
     public boolean contains(Mana other) {
-        return B >= other.B
-                && U >= other.U
-                && G >= other.G
-                && R >= other.R
-                && W >= other.W
-                && X >= other.X + other.B - B + other.U - U + other.G - G + other.R - R + other.W - W;
+        return contains(bits, other.bits);
     }
 
     public Mana plus(Mana other) {
-        return new Mana(B + other.B, U + other.U, G + other.G, R + other.R, W + other.W, X + other.X);
+        return of(add(bits, other.bits));
     }
 
     public Mana minus(Mana other) {
         if (!contains(other)) {
             throw new IllegalArgumentException("Can't remove " + other + " mana from " + this);
         }
-        return new Mana(
-                B - other.B,
-                U - other.U,
-                G - other.G,
-                R - other.R,
-                W - other.W,
-                X - other.X);
+        return of(subtract(bits, other.bits));
     }
 
     public boolean isEmpty() {
@@ -101,20 +245,22 @@ public class Mana {
 
     @Override
     public String toString() {
-        if (isEmpty()) {
+        return toString(bits);
+    }
+
+    static String toString(long bits) {
+        if (ccm(bits) == 0) {
             return "0";
         }
+        int x = lane(bits, X_SHIFT);
         return new StringBuilder()
-                .append(X > 0 ? X : "")
-                .append(Strings.repeat("B", B))
-                .append(Strings.repeat("U", U))
-                .append(Strings.repeat("G", G))
-                .append(Strings.repeat("R", R))
-                .append(Strings.repeat("W", W))
-                .append(X < 0 ? X : "")
-//                .append("(")
-//                .append(ccm())
-//                .append(")")
+                .append(x > 0 ? x : "")
+                .append(Strings.repeat("B", lane(bits, B_SHIFT)))
+                .append(Strings.repeat("U", lane(bits, U_SHIFT)))
+                .append(Strings.repeat("G", lane(bits, G_SHIFT)))
+                .append(Strings.repeat("R", lane(bits, R_SHIFT)))
+                .append(Strings.repeat("W", lane(bits, W_SHIFT)))
+                .append(x < 0 ? x : "")
                 .toString();
     }
 }
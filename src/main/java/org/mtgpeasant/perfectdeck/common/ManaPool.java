@@ -0,0 +1,62 @@
+package org.mtgpeasant.perfectdeck.common;
+
+/**
+ * Mutable mana pool, with allocation-free operations on the packed {@link Mana} encoding
+ */
+public final class ManaPool {
+    private long bits;
+    /**
+     * Immutable snapshot of the pool (lazily created, invalidated on change)
+     */
+    private Mana snapshot = Mana.zero();
+
+    public void clear() {
+        bits = 0;
+        snapshot = Mana.zero();
+    }
+
+    public void add(Mana mana) {
+        bits = Mana.add(bits, mana.bits);
+        snapshot = null;
+    }
+
+    /**
+     * Removes the given cost from the pool
+     *
+     * @throws IllegalArgumentException if the pool doesn't contain the cost
+     */
+    public void pay(Mana cost) {
+        if (!contains(cost)) {
+            throw new IllegalArgumentException("Can't remove " + cost + " mana from " + this);
+        }
+        bits = Mana.subtract(bits, cost.bits);
+        snapshot = null;
+    }
+
+    public boolean contains(Mana cost) {
+        return Mana.contains(bits, cost.bits);
+    }
+
+    public int ccm() {
+        return Mana.ccm(bits);
+    }
+
+    public boolean isEmpty() {
+        return ccm() == 0;
+    }
+
+    /**
+     * Returns the content of the pool as an immutable {@link Mana}
+     */
+    public Mana toMana() {
+        if (snapshot == null) {
+            snapshot = Mana.of(bits);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return Mana.toString(bits);
+    }
+}
@@ -0,0 +1,120 @@
+package org.mtgpeasant.perfectdeck.common.cards;
+
+import java.util.Arrays;
+
+/**
+ * An unordered multiset of cards, stored as a number of copies per card id (see {@link CardDictionary}).
+ * <p>
+ * Cheaper than {@link Cards} whenever the order is irrelevant (ex: matching an opening hand against mulligan rules).
+ */
+public class CardCounts {
+    private int[] counts;
+    private int size;
+
+    private CardCounts(int[] counts, int size) {
+        this.counts = counts;
+        this.size = size;
+    }
+
+    /**
+     * Builds an empty multiset
+     */
+    public static CardCounts none() {
+        return new CardCounts(new int[CardDictionary.size()], 0);
+    }
+
+    /**
+     * Builds the multiset of the given cards
+     */
+    public static CardCounts of(Cards cards) {
+        CardCounts counts = none();
+        for (int i = 0; i < cards.size(); i++) {
+            counts.put(cards.idAt(i));
+        }
+        return counts;
+    }
+
+    /**
+     * Makes a copy of this multiset
+     */
+    public CardCounts copy() {
+        return new CardCounts(counts.clone(), size);
+    }
+
+    /**
+     * Returns the total number of cards
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of copies of the given card id
+     */
+    public int count(int id) {
+        return id < counts.length ? counts[id] : 0;
+    }
+
+    /**
+     * Adds one copy of the given card id
+     */
+    public void put(int id) {
+        if (id >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(id + 1, CardDictionary.size()));
+        }
+        counts[id]++;
+        size++;
+    }
+
+    /**
+     * Removes one copy of the given card id
+     *
+     * @return {@code false} if there was no copy of the card (in which case this is left unchanged)
+     */
+    public boolean take(int id) {
+        if (id >= counts.length || counts[id] == 0) {
+            return false;
+        }
+        counts[id]--;
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the card ids (one per copy), in ascending order
+     */
+    public int[] toIdArray() {
+        int[] ids = new int[size];
+        int index = 0;
+        for (int id = 0; id < counts.length && index < size; id++) {
+            for (int i = 0; i < counts[id]; i++) {
+                ids[index++] = id;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Removes all cards
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(counts, 0);
+            size = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int id = 0; id < counts.length; id++) {
+            for (int i = 0; i < counts[id]; i++) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(CardDictionary.name(id));
+            }
+        }
+        return sb.append("]").toString();
+    }
+}
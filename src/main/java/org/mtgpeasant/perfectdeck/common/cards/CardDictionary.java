@@ -0,0 +1,88 @@
+package org.mtgpeasant.perfectdeck.common.cards;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns card names into small int ids.
+ * <p>
+ * Ids are assigned in registration order (starting at 0) and never change for the life of the JVM, so they can be used
+ * as array indexes and compared with {@code ==} instead of {@link String#equals(Object)}.
+ */
+public final class CardDictionary {
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[0];
+
+    private CardDictionary() {
+    }
+
+    /**
+     * Returns the id of the given card name, registering it if necessary
+     *
+     * @param name card name
+     * @return card id
+     */
+    public static int id(String name) {
+        Integer id = IDS.get(name);
+        return id != null ? id : register(name);
+    }
+
+    /**
+     * Returns the id of the given card name, without registering it
+     *
+     * @param name card name
+     * @return card id, or {@code -1} if the card name was never registered
+     */
+    public static int find(String name) {
+        Integer id = IDS.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the ids of the given card names, without registering them
+     *
+     * @param names card names
+     * @return card ids ({@code -1} for card names that were never registered)
+     */
+    public static int[] find(String... names) {
+        int[] ids = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            ids[i] = find(names[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the card name associated to the given id
+     *
+     * @param id card id
+     * @return card name
+     */
+    public static String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns the number of registered card names (all ids are lower than this number)
+     */
+    public static int size() {
+        return names.length;
+    }
+
+    private static synchronized int register(String name) {
+        if (name == null) {
+            throw new NullPointerException("Card name can't be null");
+        }
+        Integer id = IDS.get(name);
+        if (id != null) {
+            return id;
+        }
+        // publish the name before the id so that any thread seeing the id also sees the name
+        String[] grown = Arrays.copyOf(names, names.length + 1);
+        grown[names.length] = name;
+        names = grown;
+        IDS.put(name, names.length - 1);
+        return names.length - 1;
+    }
+}
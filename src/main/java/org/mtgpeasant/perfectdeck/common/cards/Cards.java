@@ -1,32 +1,134 @@
 package org.mtgpeasant.perfectdeck.common.cards;
 
+import org.mtgpeasant.perfectdeck.common.utils.SeedableRandom;
+
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntUnaryOperator;
 
+/**
+ * An ordered list of cards.
+ * <p>
+ * Cards are stored as interned ids (see {@link CardDictionary}) in a circular int buffer: the {@link String} based
+ * {@link Deque} API is a facade over the {@code *Id} methods that simulators use internally.
+ * <p>
+ * Counted lists (see {@link #counted()}) also link the slots holding each card id, so that a card is removed without
+ * looking for it: its slot becomes a hole, and holes are only compacted when cards are accessed by position.
+ */
+public class Cards extends AbstractCollection<String> implements Deque<String> {
+    private static final int MIN_CAPACITY = 16;
+    private static final int HOLE = -1;
 
-public class Cards extends ArrayDeque<String> {
+    private int[] ids;
+    private int head = 0;
+    private int size = 0;
+    /**
+     * Number of removed slots between the first and the last card (always 0 in lists that are not counted)
+     */
+    private int holes = 0;
+    /**
+     * Number of copies per card id, only maintained by counted lists (see {@link #counted()})
+     */
+    private int[] counts;
+    /**
+     * First and last slot holding each card id ({@code -1} if none), only maintained by counted lists
+     */
+    private int[] firstSlot;
+    private int[] lastSlot;
+    /**
+     * Next and previous slot holding the same card id ({@code -1} if none), only maintained by counted lists
+     */
+    private int[] nextSlot;
+    private int[] prevSlot;
 
     Cards() {
+        ids = new int[MIN_CAPACITY];
+    }
+
+    /**
+     * @param capacity expected number of cards
+     */
+    Cards(int capacity) {
+        ids = new int[capacityFor(capacity)];
     }
 
     Cards(Collection<? extends String> collection) {
-        super(collection);
+        if (collection instanceof Cards) {
+            Cards other = (Cards) collection;
+            ids = other.toIdArray(capacityFor(other.size));
+            size = other.size;
+        } else {
+            ids = new int[capacityFor(collection.size())];
+            for (String card : collection) {
+                addLastId(CardDictionary.id(card));
+            }
+        }
     }
 
     /**
-     * Makes a copy of this cards list
+     * @param ids  card ids buffer (its length must be a power of 2)
+     * @param size number of cards in buffer
+     */
+    private Cards(int[] ids, int size) {
+        this.ids = ids;
+        this.size = size;
+    }
+
+    /**
+     * Makes a copy of this cards list (a copy of a counted list is also counted)
      */
     @Override
     public Cards clone() {
-        return new Cards(this);
+        Cards copy = new Cards(this);
+        if (counts != null) {
+            copy.counts = counts.clone();
+            copy.firstSlot = new int[counts.length];
+            copy.lastSlot = new int[counts.length];
+            Arrays.fill(copy.firstSlot, -1);
+            Arrays.fill(copy.lastSlot, -1);
+            copy.nextSlot = new int[copy.ids.length];
+            copy.prevSlot = new int[copy.ids.length];
+            copy.relink();
+        }
+        return copy;
     }
 
     /**
      * Returns a copy of this, randomly shuffled
      */
     public Cards shuffle() {
-        List<String> copy = new ArrayList<>(this);
-        Collections.shuffle(copy);
-        return new Cards(copy);
+        Random random = ThreadLocalRandom.current();
+        return shuffle(random::nextInt);
+    }
+
+    /**
+     * Returns a copy of this, shuffled with the given random generator (reproducible)
+     */
+    public Cards shuffle(SplittableRandom random) {
+        return shuffle(random::nextInt);
+    }
+
+    /**
+     * Returns a copy of this, shuffled with the given random generator (reproducible)
+     */
+    public Cards shuffle(SeedableRandom random) {
+        return shuffle(random::nextInt);
+    }
+
+    /**
+     * Fisher-Yates shuffle
+     *
+     * @param nextInt returns a random int between 0 (inclusive) and the given bound (exclusive)
+     */
+    private Cards shuffle(IntUnaryOperator nextInt) {
+        int[] copy = toIdArray(capacityFor(size));
+        for (int i = size - 1; i > 0; i--) {
+            int j = nextInt.applyAsInt(i + 1);
+            int tmp = copy[i];
+            copy[i] = copy[j];
+            copy[j] = tmp;
+        }
+        return new Cards(copy, size);
     }
 
     /**
@@ -39,14 +141,11 @@ public class Cards extends ArrayDeque<String> {
         if (number > size()) {
             throw new IllegalArgumentException("Can't look more cards than size");
         }
-        Cards selected = new Cards();
-        int i = 0;
-        Iterator<String> cards = this.iterator();
-        while (i < number && cards.hasNext()) {
-            selected.add(cards.next());
-            i++;
+        int[] selected = new int[capacityFor(number)];
+        for (int i = 0; i < number; i++) {
+            selected[i] = idAt(i);
         }
-        return selected;
+        return new Cards(selected, number);
     }
 
     /**
@@ -59,10 +158,17 @@ public class Cards extends ArrayDeque<String> {
         if (number > size()) {
             throw new IllegalArgumentException("Can't draw cards than size");
         }
-        Cards selected = new Cards();
-        for (int i = 0; i < number; i++) {
-            selected.add(removeFirst());
+        Cards selected = look(number);
+        int mask = ids.length - 1;
+        if (counts != null) {
+            for (int i = 0; i < number; i++) {
+                int slot = (head + i) & mask;
+                count(ids[slot], -1);
+                unlink(slot);
+            }
         }
+        head = (head + number) & mask;
+        size -= number;
         return selected;
     }
 
@@ -88,10 +194,63 @@ public class Cards extends ArrayDeque<String> {
      * @return number of found cards
      */
     public int count(String... cards) {
-        Set<String> set = new HashSet<>(Arrays.asList(cards));
+        return countIds(CardDictionary.find(cards));
+    }
+
+    /**
+     * Looks for all cards matching the given names
+     *
+     * @param cards card names to look for
+     * @return found cards
+     */
+    public Cards findAll(String... cards) {
+        int[] searched = CardDictionary.find(cards);
+        int[] selected = new int[capacityFor(size)];
         int count = 0;
-        for (String card : this) {
-            if (set.contains(card)) {
+        for (int i = 0; i < size; i++) {
+            int id = idAt(i);
+            if (in(id, searched)) {
+                selected[count++] = id;
+            }
+        }
+        return new Cards(selected, count);
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // int based API
+    // ---------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the id of the card at the given position (0 being the top)
+     */
+    public int idAt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        compact();
+        return ids[(head + index) & (ids.length - 1)];
+    }
+
+    /**
+     * Checks whether this contains the given card id
+     */
+    public boolean containsId(int id) {
+        if (counts != null) {
+            return countId(id) > 0;
+        }
+        return indexOfId(id) >= 0;
+    }
+
+    /**
+     * Returns the number of copies of the given card id
+     */
+    public int countId(int id) {
+        if (counts != null) {
+            return id >= 0 && id < counts.length ? counts[id] : 0;
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (idAt(i) == id) {
                 count++;
             }
         }
@@ -99,20 +258,528 @@ public class Cards extends ArrayDeque<String> {
     }
 
     /**
-     * Looks for all cards matching the given names
+     * Returns the number of cards matching one of the given ids
+     */
+    public int countIds(int... searched) {
+        int count = 0;
+        if (counts != null) {
+            for (int i = 0; i < searched.length; i++) {
+                if (!in(searched[i], searched, i)) {
+                    count += countId(searched[i]);
+                }
+            }
+            return count;
+        }
+        for (int i = 0; i < size; i++) {
+            if (in(idAt(i), searched)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds the given card id on top
+     */
+    public void addFirstId(int id) {
+        ensureCapacity(size + 1);
+        head = (head - 1) & (ids.length - 1);
+        ids[head] = id;
+        size++;
+        count(id, 1);
+        if (counts != null) {
+            linkFirst(head);
+        }
+    }
+
+    /**
+     * Adds the given card id at the bottom
+     */
+    public void addLastId(int id) {
+        ensureCapacity(size + 1);
+        int slot = (head + size + holes) & (ids.length - 1);
+        ids[slot] = id;
+        size++;
+        count(id, 1);
+        if (counts != null) {
+            linkLast(slot);
+        }
+    }
+
+    /**
+     * Removes the first occurrence of the given card id (constant time in counted lists)
      *
-     * @param cards card names to look for
-     * @return found cards
+     * @return {@code true} if the card was found (and removed)
      */
-    public Cards findAll(String... cards) {
-        Set<String> set = new HashSet<>(Arrays.asList(cards));
-        Cards selected = new Cards();
-        for (String card : this) {
-            if (set.contains(card)) {
-                selected.add(card);
+    public boolean removeId(int id) {
+        if (counts != null) {
+            if (countId(id) == 0) {
+                return false;
             }
+            punch(firstSlot[id]);
+            return true;
         }
-        return selected;
+        int index = indexOfId(id);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Returns a copy of the card ids (from top to bottom)
+     */
+    public int[] toIdArray() {
+        return toIdArray(size);
+    }
+
+    private int[] toIdArray(int capacity) {
+        compact();
+        int[] copy = new int[capacity];
+        int mask = ids.length - 1;
+        for (int i = 0; i < size; i++) {
+            copy[i] = ids[(head + i) & mask];
+        }
+        return copy;
+    }
+
+    private int indexOfId(int id) {
+        compact();
+        int mask = ids.length - 1;
+        for (int i = 0; i < size; i++) {
+            if (ids[(head + i) & mask] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int lastIndexOfId(int id) {
+        compact();
+        int mask = ids.length - 1;
+        for (int i = size - 1; i >= 0; i--) {
+            if (ids[(head + i) & mask] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the card at the given position, shifting the cards on the shortest side (top or bottom), or leaving a
+     * hole in counted lists
+     */
+    private void removeAt(int index) {
+        if (counts != null) {
+            compact();
+            punch((head + index) & (ids.length - 1));
+            return;
+        }
+        int mask = ids.length - 1;
+        if (index < size / 2) {
+            for (int i = index; i > 0; i--) {
+                ids[(head + i) & mask] = ids[(head + i - 1) & mask];
+            }
+            head = (head + 1) & mask;
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                ids[(head + i) & mask] = ids[(head + i + 1) & mask];
+            }
+        }
+        size--;
+    }
+
+    /**
+     * Removes the card in the given slot of a counted list, leaving a hole (holes at both ends are dropped)
+     */
+    private void punch(int slot) {
+        count(ids[slot], -1);
+        unlink(slot);
+        ids[slot] = HOLE;
+        size--;
+        holes++;
+        int mask = ids.length - 1;
+        while (holes > 0 && ids[head] == HOLE) {
+            head = (head + 1) & mask;
+            holes--;
+        }
+        while (holes > 0 && ids[(head + size + holes - 1) & mask] == HOLE) {
+            holes--;
+        }
+    }
+
+    /**
+     * Moves the cards over the holes (keeping their order), so that cards can be accessed by position
+     */
+    private void compact() {
+        if (holes == 0) {
+            return;
+        }
+        int mask = ids.length - 1;
+        int to = 0;
+        for (int from = 0; from < size + holes; from++) {
+            int id = ids[(head + from) & mask];
+            if (id != HOLE) {
+                ids[(head + to++) & mask] = id;
+            }
+        }
+        holes = 0;
+        relink();
+    }
+
+    /**
+     * Rebuilds the links between slots of a counted list (after its cards were moved)
+     */
+    private void relink() {
+        if (nextSlot.length != ids.length) {
+            nextSlot = new int[ids.length];
+            prevSlot = new int[ids.length];
+        }
+        int mask = ids.length - 1;
+        for (int i = 0; i < size; i++) {
+            int id = ids[(head + i) & mask];
+            firstSlot[id] = -1;
+            lastSlot[id] = -1;
+        }
+        for (int i = 0; i < size; i++) {
+            linkLast((head + i) & mask);
+        }
+    }
+
+    private void linkFirst(int slot) {
+        int id = ids[slot];
+        int first = firstSlot[id];
+        prevSlot[slot] = -1;
+        nextSlot[slot] = first;
+        if (first < 0) {
+            lastSlot[id] = slot;
+        } else {
+            prevSlot[first] = slot;
+        }
+        firstSlot[id] = slot;
+    }
+
+    private void linkLast(int slot) {
+        int id = ids[slot];
+        int last = lastSlot[id];
+        nextSlot[slot] = -1;
+        prevSlot[slot] = last;
+        if (last < 0) {
+            firstSlot[id] = slot;
+        } else {
+            nextSlot[last] = slot;
+        }
+        lastSlot[id] = slot;
+    }
+
+    private void unlink(int slot) {
+        int id = ids[slot];
+        int prev = prevSlot[slot];
+        int next = nextSlot[slot];
+        if (prev < 0) {
+            firstSlot[id] = next;
+        } else {
+            nextSlot[prev] = next;
+        }
+        if (next < 0) {
+            lastSlot[id] = prev;
+        } else {
+            prevSlot[next] = prev;
+        }
+    }
+
+    private void count(int id, int delta) {
+        if (counts != null) {
+            if (id >= counts.length) {
+                int length = counts.length;
+                counts = Arrays.copyOf(counts, Math.max(id + 1, CardDictionary.size()));
+                firstSlot = Arrays.copyOf(firstSlot, counts.length);
+                lastSlot = Arrays.copyOf(lastSlot, counts.length);
+                Arrays.fill(firstSlot, length, counts.length, -1);
+                Arrays.fill(lastSlot, length, counts.length, -1);
+            }
+            counts[id] += delta;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity + holes > ids.length) {
+            compact();
+            if (capacity > ids.length) {
+                ids = toIdArray(capacityFor(capacity));
+                head = 0;
+                if (counts != null) {
+                    relink();
+                }
+            }
+        }
+    }
+
+    /**
+     * Buffer capacity is always a power of 2 (so that indexes can be wrapped with a simple mask)
+     */
+    private static int capacityFor(int size) {
+        return size <= MIN_CAPACITY ? MIN_CAPACITY : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static boolean in(int id, int[] ids) {
+        return in(id, ids, ids.length);
+    }
+
+    /**
+     * Checks whether the id is one of the first {@code length} ids
+     */
+    private static boolean in(int id, int[] ids, int length) {
+        for (int i = 0; i < length; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int idOf(Object card) {
+        return card instanceof String ? CardDictionary.find((String) card) : -1;
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Deque<String> facade
+    // ---------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object card) {
+        int id = idOf(card);
+        return id >= 0 && containsId(id);
+    }
+
+    @Override
+    public boolean add(String card) {
+        addLast(card);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object card) {
+        return removeFirstOccurrence(card);
+    }
+
+    @Override
+    public void clear() {
+        head = 0;
+        size = 0;
+        holes = 0;
+        if (counts != null) {
+            Arrays.fill(counts, 0);
+            Arrays.fill(firstSlot, -1);
+            Arrays.fill(lastSlot, -1);
+        }
+    }
+
+    @Override
+    public void addFirst(String card) {
+        addFirstId(CardDictionary.id(card));
+    }
+
+    @Override
+    public void addLast(String card) {
+        addLastId(CardDictionary.id(card));
+    }
+
+    @Override
+    public boolean offerFirst(String card) {
+        addFirst(card);
+        return true;
+    }
+
+    @Override
+    public boolean offerLast(String card) {
+        addLast(card);
+        return true;
+    }
+
+    @Override
+    public String removeFirst() {
+        String card = pollFirst();
+        if (card == null) {
+            throw new NoSuchElementException();
+        }
+        return card;
+    }
+
+    @Override
+    public String removeLast() {
+        String card = pollLast();
+        if (card == null) {
+            throw new NoSuchElementException();
+        }
+        return card;
+    }
+
+    @Override
+    public String pollFirst() {
+        if (size == 0) {
+            return null;
+        }
+        int id = idAt(0);
+        removeAt(0);
+        return CardDictionary.name(id);
+    }
+
+    @Override
+    public String pollLast() {
+        if (size == 0) {
+            return null;
+        }
+        int id = idAt(size - 1);
+        removeAt(size - 1);
+        return CardDictionary.name(id);
+    }
+
+    @Override
+    public String getFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return CardDictionary.name(idAt(0));
+    }
+
+    @Override
+    public String getLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return CardDictionary.name(idAt(size - 1));
+    }
+
+    @Override
+    public String peekFirst() {
+        return size == 0 ? null : CardDictionary.name(idAt(0));
+    }
+
+    @Override
+    public String peekLast() {
+        return size == 0 ? null : CardDictionary.name(idAt(size - 1));
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object card) {
+        int id = idOf(card);
+        return id >= 0 && removeId(id);
+    }
+
+    @Override
+    public boolean removeLastOccurrence(Object card) {
+        int id = idOf(card);
+        int index = id < 0 ? -1 : lastIndexOfId(id);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public boolean offer(String card) {
+        return offerLast(card);
+    }
+
+    @Override
+    public String remove() {
+        return removeFirst();
+    }
+
+    @Override
+    public String poll() {
+        return pollFirst();
+    }
+
+    @Override
+    public String element() {
+        return getFirst();
+    }
+
+    @Override
+    public String peek() {
+        return peekFirst();
+    }
+
+    @Override
+    public void push(String card) {
+        addFirst(card);
+    }
+
+    @Override
+    public String pop() {
+        return removeFirst();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            int next = 0;
+            int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return CardDictionary.name(idAt(last));
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                removeAt(last);
+                next = last;
+                last = -1;
+            }
+        };
+    }
+
+    @Override
+    public Iterator<String> descendingIterator() {
+        return new Iterator<String>() {
+            int next = size - 1;
+            int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public String next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                last = next--;
+                return CardDictionary.name(idAt(last));
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                removeAt(last);
+                last = -1;
+            }
+        };
     }
 
     public static Cards of(String... cards) {
@@ -126,4 +793,21 @@ public class Cards extends ArrayDeque<String> {
     public static Cards none() {
         return new Cards();
     }
+
+    /**
+     * Builds an empty list that also maintains the number of copies of each card id and the slots holding them, so
+     * that counting, looking for and removing a card take constant time (only {@link #clone()} copies are also
+     * counted)
+     */
+    public static Cards counted() {
+        Cards cards = new Cards();
+        cards.counts = new int[CardDictionary.size()];
+        cards.firstSlot = new int[cards.counts.length];
+        cards.lastSlot = new int[cards.counts.length];
+        Arrays.fill(cards.firstSlot, -1);
+        Arrays.fill(cards.lastSlot, -1);
+        cards.nextSlot = new int[cards.ids.length];
+        cards.prevSlot = new int[cards.ids.length];
+        return cards;
+    }
 }
@@ -26,8 +26,10 @@ public class Deck {
         while ((line = reader.readLine()) != null) {
             CardLine dl = parse(line, isReadingSideboard);
             if (dl != null) {
+                // intern card name once per line
+                int id = CardDictionary.id(dl.getName());
                 for (int i = 0; i < dl.getCount(); i++) {
-                    (dl.isMain() ? main : side).add(dl.getName());
+                    (dl.isMain() ? main : side).addLastId(id);
                 }
             }
         }
@@ -0,0 +1,101 @@
+package org.mtgpeasant.perfectdeck.common.cards;
+
+import org.mtgpeasant.perfectdeck.common.utils.SeedableRandom;
+
+/**
+ * Draws cards from a lazily shuffled copy of a cards list.
+ * <p>
+ * Each drawn card is randomly selected among the remaining ones (one Fisher-Yates step per card), so drawing an opening
+ * hand only costs a few swaps instead of shuffling the whole deck. The backing int array is reused: {@link #reset()}
+ * undoes the swaps to make all cards available again, and cards are drawn into lists owned by the caller, so that
+ * drawing hands and libraries over and over doesn't allocate.
+ */
+public class Shuffler {
+    private final int[] ids;
+    /**
+     * Position each drawn card was selected from (to undo swaps)
+     */
+    private final int[] selections;
+    private int drawn = 0;
+
+    public Shuffler(Cards cards) {
+        this.ids = cards.toIdArray();
+        this.selections = new int[ids.length];
+    }
+
+    /**
+     * Puts back all drawn cards (in their original order, so that draws only depend on the random generator)
+     */
+    public Shuffler reset() {
+        while (drawn > 0) {
+            drawn--;
+            swap(drawn, selections[drawn]);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of cards left to draw
+     */
+    public int size() {
+        return ids.length - drawn;
+    }
+
+    /**
+     * Draws a random card among the remaining ones
+     *
+     * @return drawn card id
+     */
+    public int drawId(SeedableRandom random) {
+        checkNotEmpty();
+        return drawAt(drawn + random.nextInt(ids.length - drawn));
+    }
+
+    /**
+     * Draws a given number of random cards among the remaining ones into the given cards (cleared first), so that a
+     * caller drawing many hands can reuse the same list
+     *
+     * @param number number of cards to draw
+     * @param into   cards list to fill
+     * @return {@code into}
+     */
+    public Cards draw(int number, SeedableRandom random, Cards into) {
+        if (number > size()) {
+            throw new IllegalArgumentException("Can't draw more cards than size");
+        }
+        into.clear();
+        for (int i = 0; i < number; i++) {
+            into.addLastId(drawId(random));
+        }
+        return into;
+    }
+
+    /**
+     * Draws all remaining cards (in random order) into the given cards (cleared first)
+     *
+     * @param into cards list to fill
+     * @return {@code into}
+     */
+    public Cards drawAll(SeedableRandom random, Cards into) {
+        return draw(size(), random, into);
+    }
+
+    private void checkNotEmpty() {
+        if (drawn == ids.length) {
+            throw new IllegalStateException("No more cards to draw");
+        }
+    }
+
+    private int drawAt(int selected) {
+        int id = ids[selected];
+        selections[drawn] = selected;
+        swap(drawn++, selected);
+        return id;
+    }
+
+    private void swap(int i, int j) {
+        int tmp = ids[i];
+        ids[i] = ids[j];
+        ids[j] = tmp;
+    }
+}
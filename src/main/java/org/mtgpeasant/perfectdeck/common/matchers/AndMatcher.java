@@ -1,8 +1,11 @@
 package org.mtgpeasant.perfectdeck.common.matchers;
 
 import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 @Value
@@ -37,4 +40,31 @@ class AndMatcher extends Matcher {
         }
         return stream;
     }
+
+    @Override
+    protected boolean matches(CardCounts remaining, MatcherContext context, Predicate<CardCounts> then) {
+        return matches(0, remaining, context, then);
+    }
+
+    private boolean matches(int index, CardCounts remaining, MatcherContext context, Predicate<CardCounts> then) {
+        if (index == matchers.size()) {
+            return then.test(remaining);
+        }
+        return matchers.get(index).matches(remaining, context, next -> matches(index + 1, next, context, then));
+    }
+
+    @Override
+    protected Matcher compile(MatcherContext context) {
+        List<Matcher> compiled = new ArrayList<>(matchers.size());
+        for (Matcher matcher : matchers) {
+            Matcher child = matcher.compile(context);
+            if (child instanceof AndMatcher) {
+                // (A && (B && C)) is (A && B && C)
+                compiled.addAll(((AndMatcher) child).getMatchers());
+            } else if (!(child instanceof NoopMatcher)) {
+                compiled.add(child);
+            }
+        }
+        return Matchers.and(compiled);
+    }
 }
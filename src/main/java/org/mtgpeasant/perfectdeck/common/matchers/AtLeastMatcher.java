@@ -0,0 +1,156 @@
+package org.mtgpeasant.perfectdeck.common.matchers;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
+import org.mtgpeasant.perfectdeck.common.cards.Cards;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Matches if at least {@code nb} of the matchers match (on distinct cards).
+ * <p>
+ * Combinations of matchers are explored with backtracking: a combination prefix that doesn't match prunes all
+ * combinations starting with it.
+ * <p>
+ * When all matchers are simple card sets (a card or a choice among cards) that are pairwise disjoint, the number of
+ * matching matchers is simply the number of card sets having at least one card in hand: hands failing this count are
+ * rejected without exploring any combination.
+ */
+@Value
+class AtLeastMatcher extends Matcher {
+    final int nb;
+    final List<Matcher> matchers;
+    @Getter(AccessLevel.NONE)
+    final int[][] disjointCardSets;
+
+    AtLeastMatcher(int nb, List<Matcher> matchers) {
+        this.nb = nb;
+        this.matchers = matchers;
+        this.disjointCardSets = disjointCardSets(matchers);
+    }
+
+    @Override
+    public String toString() {
+        return "@atleast(" + nb + ")(" + matchers.stream().map(Matcher::toString).collect(Collectors.joining(" ")) + ")";
+    }
+
+    @Override
+    protected void validate(Validation validation, MatcherContext context) {
+        for (Matcher matcher : matchers) {
+            matcher.validate(validation, context);
+        }
+    }
+
+    @Override
+    protected Stream<Match> matches(Stream<Match> stream, MatcherContext context) {
+        List<Match> upstreamMatches = stream
+                .filter(match -> disjointCardSets == null || countMatching(match.getRemaining()) >= nb)
+                .collect(Collectors.toList());
+        return select(upstreamMatches, 0, nb, (matcher, upstream) -> matcher.matches(upstream, context));
+    }
+
+    @Override
+    protected boolean matches(CardCounts remaining, MatcherContext context, Predicate<CardCounts> then) {
+        if (disjointCardSets != null && countMatching(remaining) < nb) {
+            return false;
+        }
+        return select(remaining, 0, nb, context, then);
+    }
+
+    @Override
+    protected Matcher compile(MatcherContext context) {
+        return new AtLeastMatcher(nb, matchers.stream().map(matcher -> matcher.compile(context)).collect(Collectors.toList()));
+    }
+
+    /**
+     * Either selects matcher #from (and then needs one less) or skips it
+     */
+    private <T> Stream<T> select(List<T> upstream, int from, int needed, BiFunction<Matcher, Stream<T>, Stream<T>> apply) {
+        if (needed == 0) {
+            return upstream.stream();
+        }
+        if (upstream.isEmpty() || matchers.size() - from < needed) {
+            // prune
+            return Stream.empty();
+        }
+        List<T> selected = apply.apply(matchers.get(from), upstream.stream()).collect(Collectors.toList());
+        return Stream.concat(
+                select(selected, from + 1, needed - 1, apply),
+                select(upstream, from + 1, needed, apply)
+        );
+    }
+
+    /**
+     * Existence-only version of {@link #select(List, int, int, BiFunction)}
+     */
+    private boolean select(CardCounts remaining, int from, int needed, MatcherContext context, Predicate<CardCounts> then) {
+        if (needed == 0) {
+            return then.test(remaining);
+        }
+        if (matchers.size() - from < needed) {
+            // prune
+            return false;
+        }
+        return matchers.get(from).matches(remaining, context, next -> select(next, from + 1, needed - 1, context, then))
+                || select(remaining, from + 1, needed, context, then);
+    }
+
+    private int countMatching(CardCounts remaining) {
+        int count = 0;
+        for (int[] cardSet : disjointCardSets) {
+            for (int id : cardSet) {
+                if (remaining.count(id) > 0) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private int countMatching(Cards remaining) {
+        int count = 0;
+        for (int[] cardSet : disjointCardSets) {
+            if (remaining.countIds(cardSet) > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the card ids set of each matcher if they are all simple and pairwise disjoint card sets, {@code null}
+     * otherwise
+     */
+    private static int[][] disjointCardSets(List<Matcher> matchers) {
+        int[][] cardSets = new int[matchers.size()][];
+        Set<Integer> allIds = new HashSet<>();
+        for (int i = 0; i < matchers.size(); i++) {
+            List<Matcher> choices = matchers.get(i) instanceof OrMatcher ? ((OrMatcher) matchers.get(i)).getMatchers() : Collections.singletonList(matchers.get(i));
+            List<Integer> ids = new ArrayList<>();
+            for (Matcher choice : choices) {
+                if (!(choice instanceof CardMatcher)) {
+                    return null;
+                }
+                int id = ((CardMatcher) choice).getId();
+                if (!allIds.add(id)) {
+                    // not disjoint
+                    return null;
+                }
+                ids.add(id);
+            }
+            cardSets[i] = ids.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return cardSets;
+    }
+}
@@ -1,13 +1,22 @@
 package org.mtgpeasant.perfectdeck.common.matchers;
 
 import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
+import org.mtgpeasant.perfectdeck.common.cards.CardDictionary;
 import org.mtgpeasant.perfectdeck.common.cards.Cards;
 
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 @Value
 class CardMatcher extends Matcher {
     final String card;
+    final int id;
+
+    CardMatcher(String card) {
+        this.card = card;
+        this.id = CardDictionary.id(card);
+    }
 
     @Override
     public String toString() {
@@ -24,16 +33,31 @@ class CardMatcher extends Matcher {
     @Override
     protected Stream<Match> matches(Stream<Match> stream, MatcherContext context) {
         return stream
-                .filter(match -> match.getRemaining().contains(card))
+                .filter(match -> match.getRemaining().containsId(id))
                 .map(match -> {
                     Cards newRemaining = match.getRemaining().clone();
-                    newRemaining.remove(card);
+                    newRemaining.removeId(id);
                     Cards newSelected = match.getSelected().clone();
-                    newSelected.add(card);
+                    newSelected.addLastId(id);
                     return Match.builder()
                             .remaining(newRemaining)
                             .selected(newSelected)
                             .build();
                 });
     }
+
+    @Override
+    protected boolean matches(CardCounts remaining, MatcherContext context, Predicate<CardCounts> then) {
+        if (!remaining.take(id)) {
+            return false;
+        }
+        boolean found = then.test(remaining);
+        remaining.put(id);
+        return found;
+    }
+
+    @Override
+    protected Matcher compile(MatcherContext context) {
+        return this;
+    }
 }
@@ -0,0 +1,33 @@
+package org.mtgpeasant.perfectdeck.common.matchers;
+
+import lombok.Value;
+
+/**
+ * Canonical signature of a hand: the sorted ids of its cards (order is irrelevant to mulligan rules)
+ * <p>
+ * Hands of up to 7 cards with small ids (the usual case) are packed in a single {@code long}.
+ */
+@Value
+class HandSignature {
+    private static final int BITS_PER_CARD = 9;
+    private static final int MAX_PACKED_CARDS = Long.SIZE / BITS_PER_CARD;
+    private static final int MAX_PACKED_ID = (1 << BITS_PER_CARD) - 2;
+
+    final long packed;
+    final int[] ids;
+
+    /**
+     * @param sortedIds card ids, in ascending order
+     */
+    static HandSignature of(int[] sortedIds) {
+        if (sortedIds.length > MAX_PACKED_CARDS || (sortedIds.length > 0 && sortedIds[sortedIds.length - 1] > MAX_PACKED_ID)) {
+            return new HandSignature(-1, sortedIds);
+        }
+        long packed = 0;
+        for (int id : sortedIds) {
+            // id + 1 so that hands of different sizes never collide
+            packed = (packed << BITS_PER_CARD) | (id + 1);
+        }
+        return new HandSignature(packed, null);
+    }
+}
@@ -1,8 +1,10 @@
 package org.mtgpeasant.perfectdeck.common.matchers;
 
 
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
 import org.mtgpeasant.perfectdeck.common.cards.Cards;
 
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 public abstract class Matcher {
@@ -10,7 +12,39 @@ public abstract class Matcher {
 
     protected abstract Stream<Match> matches(Stream<Match> stream, MatcherContext context);
 
+    /**
+     * Existence-only evaluation: depth-first search of the ways to match the remaining cards (an unordered multiset)
+     * <p>
+     * Matched cards are taken from {@code remaining} in place, then {@code then} is called with what's left; the search
+     * stops as soon as {@code then} returns {@code true}. {@code remaining} is always restored before returning.
+     *
+     * @param remaining remaining cards
+     * @param context   context
+     * @param then      continuation, called on each match
+     * @return {@code true} if the continuation returned {@code true} for one match
+     */
+    protected abstract boolean matches(CardCounts remaining, MatcherContext context, Predicate<CardCounts> then);
+
+    /**
+     * Returns an equivalent matcher, with all references resolved (against the given context) and nested compounds
+     * flattened
+     * <p>
+     * The compiled matcher doesn't depend on the context any longer.
+     */
+    protected abstract Matcher compile(MatcherContext context);
+
     public Stream<Match> matches(Cards cards, MatcherContext context) {
         return matches(Stream.of(Match.from(cards)), context);
     }
+
+    /**
+     * Determines whether the given hand matches
+     *
+     * @param hand    hand (left unchanged)
+     * @param context context
+     * @return {@code true} if there is at least one match
+     */
+    public boolean matches(CardCounts hand, MatcherContext context) {
+        return matches(hand, context, remaining -> true);
+    }
 }
@@ -1,7 +1,6 @@
 package org.mtgpeasant.perfectdeck.common.matchers;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Sets;
 import lombok.Builder;
 import lombok.Value;
 import org.mtgpeasant.perfectdeck.common.utils.ParseError;
@@ -33,10 +32,10 @@ public class Matchers {
         } else if (nb == matchers.size()) {
             return and(matchers);
         } else {
-            // make all combinations of NB among matchers:
-            // any( all(M1, M2, ... Mn), ...)
-            Set<Set<Matcher>> allCombinations = Sets.combinations(new HashSet<>(matchers), nb);
-            return new OrMatcher(allCombinations.stream().map(combination -> new AndMatcher(new ArrayList<>(combination))).collect(Collectors.toList()));
+            // k-of-n among distinct matchers (explored with backtracking instead of expanding all combinations)
+            List<Matcher> distinct = new ArrayList<>(new LinkedHashSet<>(matchers));
+            Preconditions.checkArgument(nb <= distinct.size(), "Min number of expected matchers (" + nb + ") can't exceed number of distinct matchers (" + distinct.size() + ")");
+            return new AtLeastMatcher(nb, distinct);
         }
     }
 
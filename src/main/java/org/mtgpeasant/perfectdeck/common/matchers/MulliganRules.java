@@ -1,6 +1,15 @@
 package org.mtgpeasant.perfectdeck.common.matchers;
 
+import com.google.common.cache.AbstractCache;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
 import org.mtgpeasant.perfectdeck.common.cards.Cards;
 import org.mtgpeasant.perfectdeck.common.utils.ParseError;
 
@@ -8,13 +17,35 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.*;
+import java.util.function.Supplier;
 
 @Value
 public class MulliganRules implements MatcherContext {
+    private static final int CACHE_SIZE = 100000;
+
     final Map<String, Matcher> matchers;
     final List<ParseError> errors;
     final List<Matchers.NamedMatcher> criteria;
 
+    /**
+     * First matching criterion per hand signature (rules are immutable)
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    final Cache<HandSignature, Optional<Matchers.NamedMatcher>> firstMatchCache;
+
+    public MulliganRules(Map<String, Matcher> matchers, List<ParseError> errors, List<Matchers.NamedMatcher> criteria) {
+        this.matchers = matchers;
+        this.errors = errors;
+        this.criteria = criteria;
+        this.firstMatchCache = CacheBuilder.newBuilder()
+                .maximumSize(CACHE_SIZE)
+                .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                .recordStats()
+                .build();
+    }
+
     public static MulliganRules parse(Reader input) throws IOException {
         List<Matchers.NamedMatcher> criteria = new ArrayList<>();
         Map<String, Matcher> matchers = new HashMap<>();
@@ -59,9 +90,78 @@ public class MulliganRules implements MatcherContext {
         return validation;
     }
 
+    /**
+     * Compiles these rules: returns equivalent rules where every matcher has its references resolved and its nested
+     * compounds flattened (see {@link Matcher#compile(MatcherContext)})
+     * <p>
+     * Rules must be valid (see {@link #validate()}).
+     */
+    public MulliganRules compile() {
+        Map<String, Matcher> compiledMatchers = new HashMap<>();
+        for (Map.Entry<String, Matcher> entry : matchers.entrySet()) {
+            compiledMatchers.put(entry.getKey(), entry.getValue().compile(this));
+        }
+        List<Matchers.NamedMatcher> compiledCriteria = new ArrayList<>(criteria.size());
+        for (Matchers.NamedMatcher criterion : criteria) {
+            compiledCriteria.add(Matchers.NamedMatcher.builder()
+                    .name(criterion.getName())
+                    .criterion(true)
+                    .matcher(criterion.getMatcher().compile(this))
+                    .build());
+        }
+        return new MulliganRules(compiledMatchers, errors, compiledCriteria);
+    }
+
     public Optional<Matchers.NamedMatcher> firstMatch(Cards hand) {
+        return firstMatch(hand, null);
+    }
+
+    public Optional<Matchers.NamedMatcher> firstMatch(CardCounts hand) {
+        return firstMatch(hand, null);
+    }
+
+    /**
+     * @param stats also records hits and misses of the cache in these statistics (when several callers share these
+     *              rules and want their own statistics), may be {@code null}
+     */
+    public Optional<Matchers.NamedMatcher> firstMatch(Cards hand, AbstractCache.StatsCounter stats) {
+        // order is irrelevant: match against the hand multiset
+        int[] ids = hand.toIdArray();
+        Arrays.sort(ids);
+        return firstMatch(HandSignature.of(ids), () -> CardCounts.of(hand), stats);
+    }
+
+    /**
+     * @param stats also records hits and misses of the cache in these statistics, may be {@code null}
+     */
+    public Optional<Matchers.NamedMatcher> firstMatch(CardCounts hand, AbstractCache.StatsCounter stats) {
+        return firstMatch(HandSignature.of(hand.toIdArray()), () -> hand, stats);
+    }
+
+    /**
+     * Returns hit/miss statistics of the {@link #firstMatch(Cards)} cache
+     */
+    public CacheStats getCacheStats() {
+        return firstMatchCache.stats();
+    }
+
+    private Optional<Matchers.NamedMatcher> firstMatch(HandSignature signature, Supplier<CardCounts> hand, AbstractCache.StatsCounter stats) {
+        Optional<Matchers.NamedMatcher> cached = firstMatchCache.getIfPresent(signature);
+        if (cached == null) {
+            cached = evaluateFirstMatch(hand.get());
+            firstMatchCache.put(signature, cached);
+            if (stats != null) {
+                stats.recordMisses(1);
+            }
+        } else if (stats != null) {
+            stats.recordHits(1);
+        }
+        return cached;
+    }
+
+    private Optional<Matchers.NamedMatcher> evaluateFirstMatch(CardCounts hand) {
         return getCriteria().stream()
-                .filter(c -> c.getMatcher().matches(hand, this).findFirst().isPresent())
+                .filter(c -> c.getMatcher().matches(hand, this))
                 .findFirst();
     }
 }
@@ -1,7 +1,9 @@
 package org.mtgpeasant.perfectdeck.common.matchers;
 
 import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
 
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 @Value
@@ -19,4 +21,14 @@ class NoopMatcher extends Matcher {
     protected Stream<Match> matches(Stream<Match> stream, MatcherContext context) {
         return stream;
     }
+
+    @Override
+    protected boolean matches(CardCounts remaining, MatcherContext context, Predicate<CardCounts> then) {
+        return then.test(remaining);
+    }
+
+    @Override
+    protected Matcher compile(MatcherContext context) {
+        return this;
+    }
 }
@@ -1,9 +1,9 @@
 package org.mtgpeasant.perfectdeck.common.matchers;
 
 import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 @Value
@@ -20,9 +20,24 @@ class NotMatcher extends Matcher {
         matcher.validate(validation, context);
     }
 
+    /**
+     * Rejects each upstream match whose remaining cards match (other upstream matches are kept)
+     */
     @Override
     protected Stream<Match> matches(Stream<Match> stream, MatcherContext context) {
-        List<Match> upstreamMatches = stream.collect(Collectors.toList());
-        return upstreamMatches.stream().filter(match -> !matcher.matches(upstreamMatches.stream(), context).findFirst().isPresent());
+        return stream.filter(match -> !matcher.matches(Stream.of(match), context).findFirst().isPresent());
+    }
+
+    /**
+     * Same as {@link #matches(Stream, MatcherContext)}: only checks the current remaining cards
+     */
+    @Override
+    protected boolean matches(CardCounts remaining, MatcherContext context, Predicate<CardCounts> then) {
+        return !matcher.matches(remaining, context, next -> true) && then.test(remaining);
+    }
+
+    @Override
+    protected Matcher compile(MatcherContext context) {
+        return new NotMatcher(matcher.compile(context));
     }
 }
@@ -2,9 +2,12 @@ package org.mtgpeasant.perfectdeck.common.matchers;
 
 import lombok.Singular;
 import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -48,4 +51,29 @@ class OrMatcher extends Matcher {
 //                .distinct()
                 ;
     }
+
+    @Override
+    protected boolean matches(CardCounts remaining, MatcherContext context, Predicate<CardCounts> then) {
+        for (Matcher matcher : matchers) {
+            if (matcher.matches(remaining, context, then)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected Matcher compile(MatcherContext context) {
+        List<Matcher> compiled = new ArrayList<>(matchers.size());
+        for (Matcher matcher : matchers) {
+            Matcher child = matcher.compile(context);
+            if (child instanceof OrMatcher) {
+                // (A || (B || C)) is (A || B || C)
+                compiled.addAll(((OrMatcher) child).getMatchers());
+            } else {
+                compiled.add(child);
+            }
+        }
+        return Matchers.or(compiled);
+    }
 }
@@ -1,7 +1,9 @@
 package org.mtgpeasant.perfectdeck.common.matchers;
 
 import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
 
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 @Value
@@ -24,4 +26,18 @@ class RefMatcher extends Matcher {
     protected Stream<Match> matches(Stream<Match> stream, MatcherContext context) {
         return context.findByName(name).matches(stream, context);
     }
+
+    @Override
+    protected boolean matches(CardCounts remaining, MatcherContext context, Predicate<CardCounts> then) {
+        return context.findByName(name).matches(remaining, context, then);
+    }
+
+    @Override
+    protected Matcher compile(MatcherContext context) {
+        Matcher matcher = context.findByName(name);
+        if (matcher == null) {
+            throw new IllegalStateException("Matcher <" + name + "> not found");
+        }
+        return matcher.compile(context);
+    }
 }
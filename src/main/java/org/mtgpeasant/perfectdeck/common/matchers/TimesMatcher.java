@@ -1,7 +1,9 @@
 package org.mtgpeasant.perfectdeck.common.matchers;
 
 import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
 
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 @Value
@@ -27,4 +29,21 @@ class TimesMatcher extends Matcher {
         }
         return stream;
     }
+
+    @Override
+    protected boolean matches(CardCounts remaining, MatcherContext context, Predicate<CardCounts> then) {
+        return matches(times, remaining, context, then);
+    }
+
+    private boolean matches(int left, CardCounts remaining, MatcherContext context, Predicate<CardCounts> then) {
+        if (left == 0) {
+            return then.test(remaining);
+        }
+        return matcher.matches(remaining, context, next -> matches(left - 1, next, context, then));
+    }
+
+    @Override
+    protected Matcher compile(MatcherContext context) {
+        return Matchers.times(times, matcher.compile(context));
+    }
 }
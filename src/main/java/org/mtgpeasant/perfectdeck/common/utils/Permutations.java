@@ -1,31 +1,74 @@
 package org.mtgpeasant.perfectdeck.common.utils;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * Lazily streams all permutations of a list, in lexicographic order of item positions (the first one being the list
+ * itself)
+ * <p>
+ * Permutations are computed one at a time from the previous one, on an array of positions (no intermediate list).
+ */
 public class Permutations {
 
     public static <T> Stream<Stream<T>> of(final List<T> items) {
-        return IntStream.range(0, factorial(items.size())).mapToObj(i -> permutation(i, items).stream());
-    }
-
-    private static int factorial(final int num) {
-        return IntStream.rangeClosed(2, num).reduce(1, (x, y) -> x * y);
-    }
+        Iterator<int[]> positions = new Iterator<int[]>() {
+            int[] next = IntStream.range(0, items.size()).toArray();
 
-    private static <T> List<T> permutation(final int count, final LinkedList<T> input, final List<T> output) {
-        if (input.isEmpty()) { return output; }
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
 
-        final int factorial = factorial(input.size() - 1);
-        output.add(input.remove(count / factorial));
-        return permutation(count % factorial, input, output);
+            @Override
+            public int[] next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                int[] current = next.clone();
+                if (!nextPermutation(next)) {
+                    next = null;
+                }
+                return current;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(positions, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .map(permutation -> IntStream.of(permutation).mapToObj(items::get));
     }
 
-    private static <T> List<T> permutation(final int count, final List<T> items) {
-        return permutation(count, new LinkedList<>(items), new ArrayList<>());
+    /**
+     * Turns the given positions into the next permutation in lexicographic order
+     *
+     * @return {@code false} if positions were the last permutation
+     */
+    static boolean nextPermutation(int[] positions) {
+        int i = positions.length - 2;
+        while (i >= 0 && positions[i] >= positions[i + 1]) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        int j = positions.length - 1;
+        while (positions[j] <= positions[i]) {
+            j--;
+        }
+        swap(positions, i, j);
+        for (int left = i + 1, right = positions.length - 1; left < right; left++, right--) {
+            swap(positions, left, right);
+        }
+        return true;
     }
 
+    private static void swap(int[] positions, int i, int j) {
+        int tmp = positions[i];
+        positions[i] = positions[j];
+        positions[j] = tmp;
+    }
 }
@@ -0,0 +1,52 @@
+package org.mtgpeasant.perfectdeck.common.utils;
+
+import java.util.SplittableRandom;
+
+/**
+ * A random generator that can be reseeded, so that a worker reuses one generator for all its draws instead of
+ * allocating one per draw
+ * <p>
+ * It implements the same algorithm as {@link SplittableRandom} (SplitMix64 with the golden gamma): once reseeded with
+ * a seed, it returns the same ints as {@code new SplittableRandom(seed)}.
+ */
+public final class SeedableRandom {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long seed;
+
+    public SeedableRandom(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Starts again from the given seed
+     */
+    public SeedableRandom reseed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Returns a random int between 0 (inclusive) and the given bound (exclusive)
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        int r = mix32(seed += GOLDEN_GAMMA);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            // power of two
+            return r & m;
+        }
+        // reject over-represented candidates
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(seed += GOLDEN_GAMMA) >>> 1) {
+        }
+        return r;
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+}
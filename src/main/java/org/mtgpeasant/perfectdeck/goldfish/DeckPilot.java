@@ -12,6 +12,19 @@ public abstract class DeckPilot {
         this.game = game;
     }
 
+    /**
+     * Prepares this pilot for a new game, played with the same (reset) {@link Game} instance
+     * <p>
+     * Default implementation returns {@code false}: a new pilot is instantiated for each game
+     * <p>
+     * Override to reset the pilot state (if any) and return {@code true}, so that the pilot is reused
+     *
+     * @return {@code true} if this pilot can be reused
+     */
+    public boolean reset() {
+        return false;
+    }
+
     /**
      * Determines whether the given hand should be kept
      *
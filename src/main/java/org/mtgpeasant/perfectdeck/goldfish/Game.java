@@ -1,15 +1,20 @@
 package org.mtgpeasant.perfectdeck.goldfish;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.ToString;
 import org.mtgpeasant.perfectdeck.common.Mana;
+import org.mtgpeasant.perfectdeck.common.ManaPool;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
+import org.mtgpeasant.perfectdeck.common.cards.CardDictionary;
 import org.mtgpeasant.perfectdeck.common.cards.Cards;
+import org.mtgpeasant.perfectdeck.common.utils.SeedableRandom;
 
-import java.io.PrintWriter;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Getter
-@ToString(exclude = "library")
+@ToString(exclude = {"library", "zones", "random", "log"})
 public class Game {
 
 
@@ -17,54 +22,94 @@ public class Game {
 
     public enum Side {top, bottom;}
 
-    private final boolean onThePlay;
+    private boolean onThePlay;
     private int mulligans = 0;
     private int currentTurn = 0;
     private int opponentLife = 20;
     private int opponentPoisonCounters = 0;
     private boolean landed = false;
     private Cards library;
-    private Cards hand;
+    /**
+     * Other zones are counted (see {@link Cards#counted()}), so that looking for a card and moving it are constant time
+     * (cards keep their order)
+     */
+    private final Cards hand = Cards.counted();
+    private final Cards board = Cards.counted();
+    private final Cards exile = Cards.counted();
+    private final Cards graveyard = Cards.counted();
+    /**
+     * Zones by {@link Area} ordinal (library excepted, as it is replaced when shuffled)
+     */
+    @Getter(AccessLevel.NONE)
+    private final Cards[] zones = {hand, null, board, exile, graveyard};
+    /**
+     * Number of tapped permanents per card id (always lower or equal to the number on board)
+     */
+    private final CardCounts tapped = CardCounts.none();
+    private final ManaPool pool = new ManaPool();
 
-    private Cards board = Cards.none();
-    private Cards exile = Cards.none();
-    private Cards graveyard = Cards.none();
-    private Cards tapped = Cards.none();
-    private Mana pool = Mana.zero();
+    /**
+     * Game events log ({@code null} when not tracing)
+     */
+    private GameLog log;
+    private SeedableRandom random;
 
-    private final PrintWriter logs;
+    Game(boolean onThePlay, GameLog log) {
+        this(onThePlay, log, new SeedableRandom(ThreadLocalRandom.current().nextLong()));
+    }
 
-    Game(boolean onThePlay, PrintWriter logs) {
+    Game(boolean onThePlay, GameLog log, SeedableRandom random) {
         this.onThePlay = onThePlay;
-        this.logs = logs;
+        this.log = log;
+        this.random = random;
+    }
+
+    /**
+     * Resets this game to its initial state, to play a new one
+     *
+     * @param log game events log (cleared), or {@code null} not to trace the game
+     */
+    void reset(boolean onThePlay, SeedableRandom random, GameLog log) {
+        this.onThePlay = onThePlay;
+        this.random = random;
+        this.log = log;
+        if (log != null) {
+            log.clear();
+        }
+        mulligans = 0;
+        currentTurn = 0;
+        opponentLife = 20;
+        opponentPoisonCounters = 0;
+        landed = false;
+        library = null;
+        hand.clear();
+        board.clear();
+        exile.clear();
+        graveyard.clear();
+        tapped.clear();
+        pool.clear();
     }
 
     void keepHandAndStart(Cards library, Cards hand) {
         this.library = library;
-        this.hand = hand;
-        log("hand #" + mulligans + " " + hand + " kept");
+        this.hand.clear();
+        for (int i = 0; i < hand.size(); i++) {
+            this.hand.addLastId(hand.idAt(i));
+        }
+        if (log != null) {
+            log.add(GameLog.Event.HAND_KEPT, -1, mulligans, 0, hand.toIdArray());
+        }
     }
 
     void rejectHand(Cards hand) {
-        log("hand #" + mulligans + " " + hand + " rejected: take mulligan");
+        if (log != null) {
+            log.add(GameLog.Event.HAND_REJECTED, -1, mulligans, 0, hand.toIdArray());
+        }
         mulligans++;
     }
 
     Cards area(Area area) {
-        switch (area) {
-            case hand:
-                return hand;
-            case library:
-                return library;
-            case board:
-                return board;
-            case exile:
-                return exile;
-            case graveyard:
-                return graveyard;
-            default:
-                return null;
-        }
+        return area == Area.library ? library : zones[area.ordinal()];
     }
 
     Game startNextTurn() {
@@ -73,98 +118,107 @@ public class Game {
         emptyPool();
 
         // log
-        log("=== Turn " + currentTurn + " ===");
-        log("> opponent life: " + opponentLife);
-        if (opponentPoisonCounters > 0) {
-            log("> opponent poison counters: " + opponentPoisonCounters);
-        }
-        log("> hand: " + hand);
-        log("> board: " + board);
-        if (!graveyard.isEmpty()) {
-            log("> graveyard: " + graveyard);
-        }
-        if (!exile.isEmpty()) {
-            log("> exile: " + exile);
+        if (log != null) {
+            log.add(GameLog.Event.TURN, -1, currentTurn, 0, null);
+            log.add(GameLog.Event.OPPONENT_LIFE, -1, opponentLife, 0, null);
+            if (opponentPoisonCounters > 0) {
+                log.add(GameLog.Event.OPPONENT_POISON, -1, opponentPoisonCounters, 0, null);
+            }
+            log.add(GameLog.Event.HAND, hand.toIdArray());
+            log.add(GameLog.Event.BOARD, board.toIdArray());
+            if (!graveyard.isEmpty()) {
+                log.add(GameLog.Event.GRAVEYARD, graveyard.toIdArray());
+            }
+            if (!exile.isEmpty()) {
+                log.add(GameLog.Event.EXILE, exile.toIdArray());
+            }
         }
 
         return this;
     }
 
     Game emptyPool() {
-        pool = Mana.zero();
+        pool.clear();
         return this;
     }
 
-    private Game pay(Mana cost, boolean log) {
+    private Game pay(Mana cost, boolean trace) {
         if (!canPay(cost)) {
             throw new IllegalActionException("Can't pay " + cost + ": not enough mana in pool (" + pool + ")");
         }
-        if (log) {
-            log("- pay " + cost);
+        if (trace && log != null) {
+            log.add(GameLog.Event.PAY, cost);
         }
-        pool = pool.minus(cost);
+        pool.pay(cost);
         return this;
     }
 
-    private Game add(Mana mana, boolean log) {
-        if (log) {
-            log("- add " + mana + " to mana pool");
+    private Game add(Mana mana, boolean trace) {
+        if (trace && log != null) {
+            log.add(GameLog.Event.ADD, mana);
         }
-        pool = pool.plus(mana);
+        pool.add(mana);
         return this;
     }
 
-    private Game tap(String cardName, boolean log) {
-        int countOnBoard = board.count(cardName);
+    private Game tap(String cardName, boolean trace) {
+        int cardId = CardDictionary.find(cardName);
+        int countOnBoard = board.countId(cardId);
         if (countOnBoard == 0) {
             throw new IllegalActionException("Can't tap [" + cardName + "]: not on board");
         }
-        int countTapped = tapped.count(cardName);
-        if (countTapped >= countOnBoard) {
+        if (tapped.count(cardId) >= countOnBoard) {
             throw new IllegalActionException("Can't tap [" + cardName + "]: all tapped");
         }
-        if (log) {
-            log("- tap [" + cardName + "]");
+        if (trace && log != null) {
+            log.add(GameLog.Event.TAP, cardId, 0, 0, null);
         }
-        tapped.add(cardName);
+        tapped.put(cardId);
         return this;
     }
 
-    private Game untap(String cardName, boolean log) {
-        if (!board.contains(cardName)) {
+    private Game untap(String cardName, boolean trace) {
+        int cardId = CardDictionary.find(cardName);
+        if (!board.containsId(cardId)) {
             throw new IllegalActionException("Can't untap [" + cardName + "]: not on board");
         }
-        if (log) {
-            log("- tap [" + cardName + "]");
+        if (trace && log != null) {
+            log.add(GameLog.Event.UNTAP, cardId, 0, 0, null);
         }
-        tapped.remove(cardName);
+        tapped.take(cardId);
         return this;
     }
 
-    private Game damageOpponent(int damage, boolean log) {
+    /**
+     * Returns the number of untapped permanents with the given id
+     */
+    private int untapped(int cardId) {
+        return cardId < 0 ? 0 : board.countId(cardId) - tapped.count(cardId);
+    }
+
+    private Game damageOpponent(int damage, boolean trace) {
         opponentLife -= damage;
-        if (log) {
-            log("- damage: " + damage + " (remains: " + opponentLife + ")");
+        if (trace && log != null) {
+            log.add(GameLog.Event.DAMAGE, -1, damage, opponentLife, null);
         }
         return this;
     }
 
-    private Game move(String cardName, Area from, Area to, Side side, boolean log) {
-        Cards fromArea = area(from);
-        if (!fromArea.contains(cardName)) {
+    private Game move(String cardName, Area from, Area to, Side side, boolean trace) {
+        int cardId = CardDictionary.find(cardName);
+        if (cardId < 0 || !area(from).removeId(cardId)) {
             throw new IllegalActionException("Can't move [" + cardName + "]: not in " + from);
         }
-        if (log) {
-            log("- move [" + cardName + "] from " + from + " to " + (side == Side.top ? "" : "bottom of ") + to);
+        if (trace && log != null) {
+            log.add(GameLog.Event.MOVE, cardId, from.ordinal(), to.ordinal(), side == Side.top ? "" : "bottom of ");
         }
-        fromArea.remove(cardName);
         if (side == Side.top) {
-            area(to).addFirst(cardName);
+            area(to).addFirstId(cardId);
         } else {
-            area(to).addLast(cardName);
+            area(to).addLastId(cardId);
         }
         if (from == Area.board) {
-            tapped.remove(cardName);
+            tapped.take(cardId);
         }
         return this;
     }
@@ -196,6 +250,13 @@ public class Game {
         return pool.contains(cost);
     }
 
+    /**
+     * Returns the mana in pool
+     */
+    public Mana getPool() {
+        return pool.toMana();
+    }
+
     /**
      * Tap the given cards
      *
@@ -212,7 +273,9 @@ public class Game {
      * @param mana     produced mana
      */
     public Game tapLandForMana(String cardName, Mana mana) {
-        log("- tap [" + cardName + "] and add " + mana + " to mana pool");
+        if (log != null) {
+            log.add(GameLog.Event.TAP_FOR_MANA, CardDictionary.find(cardName), 0, 0, mana);
+        }
         tap(cardName, false);
         add(mana, false);
         return this;
@@ -225,7 +288,9 @@ public class Game {
      * @param strength creature strength
      */
     public Game tapForAttack(String cardName, int strength) {
-        log("- attack with [" + cardName + "] for " + strength);
+        if (log != null) {
+            log.add(GameLog.Event.ATTACK, CardDictionary.find(cardName), strength, 0, null);
+        }
         tap(cardName, false);
         damageOpponent(strength, false);
         return this;
@@ -244,7 +309,9 @@ public class Game {
      * Untap all permanents
      */
     public Game untapAll() {
-        log("- untap all");
+        if (log != null) {
+            log.add(GameLog.Event.UNTAP_ALL, null);
+        }
         tapped.clear();
         return this;
     }
@@ -256,7 +323,12 @@ public class Game {
      */
     public Cards getUntapped(String... cards) {
         Cards all = board.findAll(cards);
-        tapped.forEach(all::remove);
+        for (String card : cards) {
+            int cardId = CardDictionary.find(card);
+            for (int i = cardId < 0 ? 0 : tapped.count(cardId); i > 0; i--) {
+                all.removeId(cardId);
+            }
+        }
         return all;
     }
 
@@ -266,7 +338,22 @@ public class Game {
      * @param cards cards to select
      */
     public int countUntapped(String... cards) {
-        return getUntapped(cards).size();
+        int count = 0;
+        for (String card : cards) {
+            count += untapped(CardDictionary.find(card));
+        }
+        return count;
+    }
+
+    /**
+     * Returns the tapped permanents
+     */
+    public Cards getTapped() {
+        Cards cards = Cards.none();
+        for (int cardId : tapped.toIdArray()) {
+            cards.addLastId(cardId);
+        }
+        return cards;
     }
 
     /**
@@ -277,7 +364,7 @@ public class Game {
      */
     public Optional<String> findFirstUntapped(String... cards) {
         for (String card : cards) {
-            if (board.count(card) > tapped.count(card)) {
+            if (untapped(CardDictionary.find(card)) > 0) {
                 return Optional.of(card);
             }
         }
@@ -296,7 +383,9 @@ public class Game {
         if (landed) {
             throw new IllegalActionException("Can't land [" + cardName + "]: can't land twice the same turn");
         }
-        log("- land [" + cardName + "]");
+        if (log != null) {
+            log.add(GameLog.Event.LAND, CardDictionary.find(cardName), 0, 0, null);
+        }
         hand.remove(cardName);
         board.add(cardName);
         landed = true;
@@ -319,7 +408,9 @@ public class Game {
      */
     public Game poisonOpponent(int counters) {
         opponentPoisonCounters += counters;
-        log("- poison: " + counters + " (total: " + opponentPoisonCounters + ")");
+        if (log != null) {
+            log.add(GameLog.Event.POISON, -1, counters, opponentPoisonCounters, null);
+        }
         return this;
     }
 
@@ -327,8 +418,10 @@ public class Game {
      * Shuffle the library
      */
     public Game shuffleLibrary() {
-        log("- shuffle library");
-        library = library.shuffle();
+        if (log != null) {
+            log.add(GameLog.Event.SHUFFLE, null);
+        }
+        library = library.shuffle(random);
         return this;
     }
 
@@ -339,7 +432,9 @@ public class Game {
      */
     public Game draw(int cards) {
         Cards drawn = library.draw(cards);
-        log("- draw " + cards + ": " + drawn);
+        if (log != null) {
+            log.add(GameLog.Event.DRAW, drawn.toIdArray());
+        }
         hand.addAll(drawn);
         return this;
     }
@@ -376,7 +471,9 @@ public class Game {
      * @param cost     mana cost
      */
     public Game cast(String cardName, Area from, Area to, Mana cost) {
-        log("- cast [" + cardName + "]" + (from == Area.hand ? "" : " from " + from) + (to == Area.graveyard ? "" : " to " + to) + " for " + cost);
+        if (log != null) {
+            log.add(GameLog.Event.CAST, CardDictionary.find(cardName), from.ordinal(), to.ordinal(), cost);
+        }
         pay(cost, false);
         move(cardName, from, to, Side.top, false);
         return this;
@@ -408,7 +505,9 @@ public class Game {
      * @param cardName card name
      */
     public Game discard(String cardName) {
-        log("- discard [" + cardName + "]");
+        if (log != null) {
+            log.add(GameLog.Event.DISCARD, CardDictionary.find(cardName), 0, 0, null);
+        }
         move(cardName, Area.hand, Area.graveyard, Side.top, false);
         return this;
     }
@@ -431,7 +530,9 @@ public class Game {
      * @param cardName permanent name
      */
     public Game sacrifice(String cardName) {
-        log("- sacrifice [" + cardName + "]");
+        if (log != null) {
+            log.add(GameLog.Event.SACRIFICE, CardDictionary.find(cardName), 0, 0, null);
+        }
         move(cardName, Area.board, Area.graveyard, Side.top, false);
         return this;
     }
@@ -442,7 +543,9 @@ public class Game {
      * @param cardName permanent name
      */
     public Game destroy(String cardName) {
-        log("- destroy [" + cardName + "]");
+        if (log != null) {
+            log.add(GameLog.Event.DESTROY, CardDictionary.find(cardName), 0, 0, null);
+        }
         move(cardName, Area.board, Area.graveyard, Side.top, false);
         return this;
     }
@@ -468,10 +571,19 @@ public class Game {
         return selected;
     }
 
+    /**
+     * Logs a free message (only when tracing)
+     */
     public void log(String message) {
-        if (logs == null) {
-            return;
+        if (log != null) {
+            log.add(GameLog.Event.MESSAGE, message);
         }
-        logs.println(message);
+    }
+
+    /**
+     * Determines whether game events are logged
+     */
+    public boolean isTracing() {
+        return log != null;
     }
 }
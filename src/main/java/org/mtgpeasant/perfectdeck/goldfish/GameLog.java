@@ -0,0 +1,181 @@
+package org.mtgpeasant.perfectdeck.goldfish;
+
+import org.mtgpeasant.perfectdeck.common.cards.CardDictionary;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Structured log of game events (event type, card id, a couple of ints and an optional value).
+ * <p>
+ * Events are recorded in a reusable ring buffer (the oldest ones are dropped when full), and only rendered as text
+ * when the game has to be printed.
+ */
+public class GameLog {
+    static final int DEFAULT_CAPACITY = 1 << 12;
+
+    enum Event {
+        MESSAGE, HAND_KEPT, HAND_REJECTED, TURN, OPPONENT_LIFE, OPPONENT_POISON, HAND, BOARD, GRAVEYARD, EXILE,
+        PAY, ADD, TAP, UNTAP, UNTAP_ALL, TAP_FOR_MANA, ATTACK, DAMAGE, POISON, LAND, SHUFFLE, DRAW, MOVE, CAST,
+        DISCARD, SACRIFICE, DESTROY
+    }
+
+    private final Event[] events;
+    private final int[] cards;
+    private final int[] args1;
+    private final int[] args2;
+    /**
+     * Immutable values (mana, card ids snapshot or message)
+     */
+    private final Object[] values;
+    private int head = 0;
+    private int size = 0;
+    private long dropped = 0;
+
+    public GameLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public GameLog(int capacity) {
+        events = new Event[capacity];
+        cards = new int[capacity];
+        args1 = new int[capacity];
+        args2 = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Removes all events
+     */
+    public void clear() {
+        // release values
+        for (int i = 0; i < size; i++) {
+            values[(head + i) % values.length] = null;
+        }
+        head = 0;
+        size = 0;
+        dropped = 0;
+    }
+
+    /**
+     * Returns the number of recorded events
+     */
+    public int size() {
+        return size;
+    }
+
+    void add(Event event, int card, int arg1, int arg2, Object value) {
+        int index;
+        if (size == events.length) {
+            // full: overwrite the oldest event
+            index = head;
+            head = (head + 1) % events.length;
+            dropped++;
+        } else {
+            index = (head + size) % events.length;
+            size++;
+        }
+        events[index] = event;
+        cards[index] = card;
+        args1[index] = arg1;
+        args2[index] = arg2;
+        values[index] = value;
+    }
+
+    void add(Event event, Object value) {
+        add(event, -1, 0, 0, value);
+    }
+
+    /**
+     * Renders all events as text (one line per event)
+     */
+    public void render(PrintWriter writer) {
+        if (dropped > 0) {
+            writer.println("... (" + dropped + " earlier events dropped)");
+        }
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % events.length;
+            writer.println(render(events[index], cards[index] < 0 ? null : CardDictionary.name(cards[index]), args1[index], args2[index], values[index]));
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringWriter output = new StringWriter();
+        render(new PrintWriter(output));
+        return output.toString();
+    }
+
+    private static String render(Event event, String card, int arg1, int arg2, Object value) {
+        switch (event) {
+            case HAND_KEPT:
+                return "hand #" + arg1 + " " + renderCards(value) + " kept";
+            case HAND_REJECTED:
+                return "hand #" + arg1 + " " + renderCards(value) + " rejected: take mulligan";
+            case TURN:
+                return "=== Turn " + arg1 + " ===";
+            case OPPONENT_LIFE:
+                return "> opponent life: " + arg1;
+            case OPPONENT_POISON:
+                return "> opponent poison counters: " + arg1;
+            case HAND:
+                return "> hand: " + renderCards(value);
+            case BOARD:
+                return "> board: " + renderCards(value);
+            case GRAVEYARD:
+                return "> graveyard: " + renderCards(value);
+            case EXILE:
+                return "> exile: " + renderCards(value);
+            case PAY:
+                return "- pay " + value;
+            case ADD:
+                return "- add " + value + " to mana pool";
+            case TAP:
+                return "- tap [" + card + "]";
+            case UNTAP:
+                return "- untap [" + card + "]";
+            case UNTAP_ALL:
+                return "- untap all";
+            case TAP_FOR_MANA:
+                return "- tap [" + card + "] and add " + value + " to mana pool";
+            case ATTACK:
+                return "- attack with [" + card + "] for " + arg1;
+            case DAMAGE:
+                return "- damage: " + arg1 + " (remains: " + arg2 + ")";
+            case POISON:
+                return "- poison: " + arg1 + " (total: " + arg2 + ")";
+            case LAND:
+                return "- land [" + card + "]";
+            case SHUFFLE:
+                return "- shuffle library";
+            case DRAW:
+                return "- draw " + ((int[]) value).length + ": " + renderCards(value);
+            case MOVE:
+                return "- move [" + card + "] from " + Game.Area.values()[arg1] + " to " + value + Game.Area.values()[arg2];
+            case CAST:
+                Game.Area from = Game.Area.values()[arg1];
+                Game.Area to = Game.Area.values()[arg2];
+                return "- cast [" + card + "]" + (from == Game.Area.hand ? "" : " from " + from) + (to == Game.Area.graveyard ? "" : " to " + to) + " for " + value;
+            case DISCARD:
+                return "- discard [" + card + "]";
+            case SACRIFICE:
+                return "- sacrifice [" + card + "]";
+            case DESTROY:
+                return "- destroy [" + card + "]";
+            case MESSAGE:
+            default:
+                return String.valueOf(value);
+        }
+    }
+
+    private static String renderCards(Object ids) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int id : (int[]) ids) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(CardDictionary.name(id));
+        }
+        return sb.append("]").toString();
+    }
+}
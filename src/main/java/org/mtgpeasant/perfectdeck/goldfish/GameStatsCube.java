@@ -0,0 +1,175 @@
+package org.mtgpeasant.perfectdeck.goldfish;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Dense cube of game counts by (start, mulligans taken, outcome, end turn)
+ * <p>
+ * Each dimension has an extra "any" position that holds marginals, so that any slice is counted with a single lookup.
+ * Win turn moments (average, MAD, SD) are precomputed for each (start, mulligans) slice.
+ * <p>
+ * In all queries, a {@code null} dimension means "any value".
+ */
+public class GameStatsCube {
+    private static final int ANY_START = 2;
+    private static final int ANY_OUTCOME = GoldfishSimulator.GameResult.Outcome.values().length;
+
+    /**
+     * Number of positions on mulligans and turns dimensions (last one is "any")
+     */
+    private final int mulligansDim;
+    private final int turnsDim;
+    private final long[] counts;
+    private final double[] averages;
+    private final double[] mads;
+    private final double[] sds;
+
+    private GameStatsCube(int maxMulligans, int maxTurn) {
+        mulligansDim = maxMulligans + 2;
+        turnsDim = maxTurn + 2;
+        counts = new long[3 * mulligansDim * (ANY_OUTCOME + 1) * turnsDim];
+        averages = new double[3 * mulligansDim];
+        mads = new double[averages.length];
+        sds = new double[averages.length];
+    }
+
+    /**
+     * Builds the cube from (aggregated) game results
+     */
+    public static GameStatsCube of(Collection<GoldfishSimulator.GameResult> results) {
+        GameStatsCube cube = new GameStatsCube(
+                results.stream().mapToInt(GoldfishSimulator.GameResult::getMulligans).max().orElse(0),
+                results.stream().mapToInt(GoldfishSimulator.GameResult::getEndTurn).max().orElse(0));
+        int anyMulligans = cube.mulligansDim - 1;
+        int anyTurn = cube.turnsDim - 1;
+        // add each result to its cell and to all marginals it belongs to
+        for (GoldfishSimulator.GameResult result : results) {
+            for (int start : new int[]{result.isOnThePlay() ? 0 : 1, ANY_START}) {
+                for (int mulligans : new int[]{result.getMulligans(), anyMulligans}) {
+                    for (int outcome : new int[]{result.getOutcome().ordinal(), ANY_OUTCOME}) {
+                        for (int turn : new int[]{result.getEndTurn(), anyTurn}) {
+                            cube.counts[cube.index(start, mulligans, outcome, turn)] += result.getCount();
+                        }
+                    }
+                }
+            }
+        }
+        // end turn moments per (start, mulligans)
+        for (int start = 0; start <= ANY_START; start++) {
+            for (int mulligans = 0; mulligans <= anyMulligans; mulligans++) {
+                cube.computeMoments(start, mulligans);
+            }
+        }
+        return cube;
+    }
+
+    private void computeMoments(int start, int mulligans) {
+        int slice = start * mulligansDim + mulligans;
+        long total = counts[index(start, mulligans, ANY_OUTCOME, turnsDim - 1)];
+        double sum = 0;
+        for (int turn = 0; turn < turnsDim - 1; turn++) {
+            sum += (double) turn * counts[index(start, mulligans, ANY_OUTCOME, turn)];
+        }
+        double avg = sum / total;
+        double distanceSum = 0;
+        double squaredDistanceSum = 0;
+        for (int turn = 0; turn < turnsDim - 1; turn++) {
+            long count = counts[index(start, mulligans, ANY_OUTCOME, turn)];
+            distanceSum += Math.abs(avg - turn) * count;
+            squaredDistanceSum += (turn - avg) * (turn - avg) * count;
+        }
+        averages[slice] = avg;
+        mads[slice] = distanceSum / total;
+        sds[slice] = Math.sqrt(squaredDistanceSum / total);
+    }
+
+    private int index(int start, int mulligans, int outcome, int turn) {
+        return ((start * mulligansDim + mulligans) * (ANY_OUTCOME + 1) + outcome) * turnsDim + turn;
+    }
+
+    private int start(Boolean onThePlay) {
+        return onThePlay == null ? ANY_START : onThePlay ? 0 : 1;
+    }
+
+    /**
+     * Returns the position of a value on a dimension, -1 if out of the cube
+     */
+    private static int position(Integer value, int dim) {
+        if (value == null) {
+            return dim - 1;
+        }
+        return value >= 0 && value < dim - 1 ? value : -1;
+    }
+
+    /**
+     * Counts games in the given slice
+     *
+     * @param onThePlay on the play, on the draw or any ({@code null})
+     * @param mulligans mulligans taken or any ({@code null})
+     * @param outcome   game outcome or any ({@code null})
+     * @param endTurn   end turn or any ({@code null})
+     * @return total count of games in the slice
+     */
+    public long count(Boolean onThePlay, Integer mulligans, GoldfishSimulator.GameResult.Outcome outcome, Integer endTurn) {
+        int mulligansPos = position(mulligans, mulligansDim);
+        int turnPos = position(endTurn, turnsDim);
+        if (mulligansPos < 0 || turnPos < 0) {
+            return 0;
+        }
+        return counts[index(start(onThePlay), mulligansPos, outcome == null ? ANY_OUTCOME : outcome.ordinal(), turnPos)];
+    }
+
+    /**
+     * Average end turn of games in the given slice
+     */
+    public double getAverageWinTurn(Boolean onThePlay, Integer mulligans) {
+        return moment(averages, onThePlay, mulligans);
+    }
+
+    /**
+     * <a href="https://en.wikipedia.org/wiki/Average_absolute_deviation">Mean absolute deviation</a> around average win turn
+     */
+    public double getWinTurnMAD(Boolean onThePlay, Integer mulligans) {
+        return moment(mads, onThePlay, mulligans);
+    }
+
+    /**
+     * <a href="https://en.wikipedia.org/wiki/Standard_deviation">Standard deviation</a> around average win turn
+     */
+    public double getWinTurnSD(Boolean onThePlay, Integer mulligans) {
+        return moment(sds, onThePlay, mulligans);
+    }
+
+    private double moment(double[] moments, Boolean onThePlay, Integer mulligans) {
+        int mulligansPos = position(mulligans, mulligansDim);
+        return mulligansPos < 0 ? Double.NaN : moments[start(onThePlay) * mulligansDim + mulligansPos];
+    }
+
+    /**
+     * Lists mulligans taken (in increasing order)
+     */
+    public List<Integer> getMulligans() {
+        List<Integer> mulligans = new ArrayList<>();
+        for (int m = 0; m < mulligansDim - 1; m++) {
+            if (count(null, m, null, null) > 0) {
+                mulligans.add(m);
+            }
+        }
+        return mulligans;
+    }
+
+    /**
+     * Lists turns games were won on (in increasing order)
+     */
+    public List<Integer> getWinTurns() {
+        List<Integer> turns = new ArrayList<>();
+        for (int turn = 0; turn < turnsDim - 1; turn++) {
+            if (count(null, null, GoldfishSimulator.GameResult.Outcome.WON, turn) > 0) {
+                turns.add(turn);
+            }
+        }
+        return turns;
+    }
+}
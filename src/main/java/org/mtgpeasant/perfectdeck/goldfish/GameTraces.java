@@ -0,0 +1,68 @@
+package org.mtgpeasant.perfectdeck.goldfish;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.Predicate;
+
+/**
+ * Sink of game traces: retains the log of games that failed or that match a filter (ex: won on turn 2), and writes
+ * them as soon as the game ends, so that memory doesn't depend on the number of simulated games
+ * <p>
+ * As {@link PrintWriter} swallows IO errors, they are checked after each trace and reported as an
+ * {@link UncheckedIOException} (that aborts the simulation), instead of silently producing a truncated trace file.
+ */
+public class GameTraces implements Closeable {
+    private final PrintWriter writer;
+    private final Predicate<GoldfishSimulator.GameResult> filter;
+    private final int max;
+    private int count = 0;
+
+    /**
+     * @param writer where traces are written
+     * @param filter selects games to trace (failed games are always traced)
+     * @param max    maximum number of written traces
+     */
+    public GameTraces(Writer writer, Predicate<GoldfishSimulator.GameResult> filter, int max) {
+        this.writer = new PrintWriter(writer);
+        this.filter = filter;
+        this.max = max;
+    }
+
+    boolean accept(GoldfishSimulator.GameResult result) {
+        return filter.test(result);
+    }
+
+    synchronized void write(String header, GameLog log) {
+        if (count >= max) {
+            return;
+        }
+        count++;
+        writer.println("### " + header);
+        log.render(writer);
+        writer.println();
+        writer.flush();
+        checkError();
+    }
+
+    /**
+     * Returns the number of written traces
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+        checkError();
+    }
+
+    private void checkError() {
+        if (writer.checkError()) {
+            throw new UncheckedIOException(new IOException("Couldn't write game traces"));
+        }
+    }
+}
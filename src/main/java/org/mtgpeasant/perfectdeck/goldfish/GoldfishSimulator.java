@@ -5,14 +5,21 @@ import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
 import org.mtgpeasant.perfectdeck.common.cards.Cards;
 import org.mtgpeasant.perfectdeck.common.cards.Deck;
-
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import org.mtgpeasant.perfectdeck.common.cards.Shuffler;
+import org.mtgpeasant.perfectdeck.common.utils.SeedableRandom;
+import org.mtgpeasant.perfectdeck.optimizer.Contestant;
+import org.mtgpeasant.perfectdeck.optimizer.RacingScheduler;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.function.Function;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -24,6 +31,15 @@ import java.util.stream.StreamSupport;
 public class GoldfishSimulator {
     public enum Start {OTP, OTD, BOTH}
 
+    /**
+     * Number of games between two precision checks
+     */
+    private static final int BATCH_SIZE = 1000;
+    /**
+     * Normal quantile of 95% confidence intervals
+     */
+    private static final double Z_95 = 1.96;
+
     @Builder.Default
     final int draw = 7;
     @Builder.Default
@@ -34,9 +50,45 @@ public class GoldfishSimulator {
     final int maxTurns = 20;
     @Builder.Default
     final boolean verbose = false;
+    /**
+     * Random seed: game #i uses its own generator seeded with {@code seed + i} (the game seed), so that results only
+     * depend on the seed (whatever the number of threads), and each game can be replayed from its own seed
+     */
+    @Builder.Default
+    final long seed = ThreadLocalRandom.current().nextLong();
+    /**
+     * Optional trace mode: games are traced, and traces of failed games or games matching the traces filter are
+     * written (null: no trace)
+     * <p>
+     * In trace mode, a failed game doesn't abort the simulation: it is counted apart (see {@link DeckStats#getFailed()}).
+     */
+    @Builder.Default
+    final GameTraces traces = null;
+    /**
+     * When strictly positive, games are simulated in batches until the 95% confidence interval half-width of the average
+     * win turn is below this value ({@link #iterations} being the maximum number of games)
+     */
+    @Builder.Default
+    final double precision = 0;
 
     final Class<? extends DeckPilot> pilotClass;
 
+    /**
+     * Pilot constructors (taking a {@link Game}), looked up once per pilot class
+     */
+    private static final ClassValue<MethodHandle> PILOT_CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> pilotClass) {
+            try {
+                return MethodHandles.publicLookup()
+                        .findConstructor(pilotClass, MethodType.methodType(void.class, Game.class))
+                        .asType(MethodType.methodType(DeckPilot.class, Game.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalArgumentException("Pilot " + pilotClass.getName() + " must have a public constructor taking a Game", e);
+            }
+        }
+    };
+
     /**
      * TODO:
      * stats on mulligans & OTP + kill turn breakdown
@@ -47,6 +99,19 @@ public class GoldfishSimulator {
         final Deck deck;
         final List<GameResult> results;
         final int iterations;
+        /**
+         * Number of games that failed (only in trace mode, otherwise the first failed game aborts the simulation)
+         */
+        final long failed;
+        /**
+         * Achieved precision: 95% confidence interval half-width of the average win turn
+         */
+        final double precision;
+        /**
+         * Precomputed counts and win turn moments, to be preferred to predicate-based queries (that scan results)
+         */
+        @Getter(lazy = true)
+        private final GameStatsCube cube = GameStatsCube.of(results);
 
         /**
          * Lists all win turns matching the given predicate
@@ -137,34 +202,365 @@ public class GoldfishSimulator {
         }
     }
 
+    /**
+     * Paired comparison of two versions of a deck
+     */
+    @Builder
+    @Getter
+    public static class PairedStats {
+        final DeckStats stats;
+        final DeckStats variantStats;
+        /**
+         * Number of paired games
+         */
+        final int iterations;
+        /**
+         * Average end turn difference (variant minus deck) over paired games
+         */
+        final double difference;
+        /**
+         * 95% confidence interval half-width of the paired difference
+         */
+        final double precision;
+        /**
+         * 95% confidence interval half-width the difference would have with independent games (for comparison)
+         */
+        final double unpairedPrecision;
+    }
+
 
+    /**
+     * Simulates several decks together (see {@link RacingScheduler#evaluate(List)}): decks progress by batches
+     * concurrently, each one until it reaches {@link #iterations} games or {@link #precision}
+     */
     public List<DeckStats> simulate(Iterable<Deck> decksProvider) {
-        return StreamSupport.stream(decksProvider.spliterator(), false)
-                .map(deck -> simulate(deck))
+        List<Simulation> simulations = StreamSupport.stream(decksProvider.spliterator(), false)
+                .map(Simulation::new)
                 .collect(Collectors.toList());
+        RacingScheduler.builder()
+                .batch(precision > 0 ? BATCH_SIZE : iterations)
+                .maxIterations(iterations)
+                .precision(precision)
+                .build()
+                .evaluate(simulations);
+        return simulations.stream().map(Simulation::getStats).collect(Collectors.toList());
+    }
+
+    /**
+     * Simulates two versions of a deck with common random numbers, and compares them game by game
+     * <p>
+     * Game #i of both decks uses the same seed, and the variant cards are aligned on the deck ones (see
+     * {@link #align(Cards, Cards)}), so that both games draw the same cards, but the swapped ones. The paired difference
+     * has a much lower variance than the difference of two independent simulations.
+     *
+     * @param deck    the reference deck
+     * @param variant the other version of the deck
+     * @return both decks statistics and their paired difference
+     */
+    public PairedStats compare(Deck deck, Deck variant) {
+        Deck aligned = Deck.builder().main(align(deck.getMain(), variant.getMain())).sideboard(variant.getSideboard()).build();
+        ThreadLocal<Seat> seats = ThreadLocal.withInitial(() -> new Seat(deck));
+        ThreadLocal<Seat> variantSeats = ThreadLocal.withInitial(() -> new Seat(aligned));
+        Pairing pairing = new Pairing();
+        // when a precision is set: simulate by batches until it is reached
+        while (pairing.games < iterations) {
+            int from = (int) pairing.games;
+            int to = precision > 0 ? Math.min(iterations, from + BATCH_SIZE) : iterations;
+            pairing.merge(IntStream.range(from, to)
+                    .parallel()
+                    .collect(
+                            Pairing::new,
+                            (worker, idx) -> worker.add(simulateGame(seats.get(), idx), simulateGame(variantSeats.get(), idx), idx),
+                            Pairing::merge));
+            if (pairing.getPrecision() <= precision) {
+                break;
+            }
+        }
+        int games = (int) pairing.games;
+        return PairedStats.builder()
+                .stats(pairing.first.getStats(deck, games))
+                .variantStats(pairing.second.getStats(aligned, games))
+                .iterations((int) pairing.count)
+                .difference(pairing.sum / pairing.count)
+                .precision(pairing.getPrecision())
+                .unpairedPrecision(Math.sqrt(pairing.first.getPrecision() * pairing.first.getPrecision() + pairing.second.getPrecision() * pairing.second.getPrecision()))
+                .build();
+    }
+
+    /**
+     * Orders cards so that cards in common with the reference keep their position, and other cards take the positions
+     * of the reference cards they replace (the shuffler then maps each position to the same draw for both decks)
+     * <p>
+     * Cards are returned unchanged if their size differs from the reference one.
+     */
+    static Cards align(Cards reference, Cards cards) {
+        if (reference.size() != cards.size()) {
+            return cards;
+        }
+        CardCounts remaining = CardCounts.of(cards);
+        int[] aligned = new int[reference.size()];
+        boolean[] holes = new boolean[aligned.length];
+        for (int i = 0; i < aligned.length; i++) {
+            int id = reference.idAt(i);
+            if (remaining.take(id)) {
+                aligned[i] = id;
+            } else {
+                holes[i] = true;
+            }
+        }
+        // fill holes with remaining cards, in their order
+        int hole = 0;
+        for (int i = 0; i < cards.size(); i++) {
+            int id = cards.idAt(i);
+            if (remaining.take(id)) {
+                while (!holes[hole]) {
+                    hole++;
+                }
+                aligned[hole++] = id;
+            }
+        }
+        Cards result = Cards.none();
+        for (int id : aligned) {
+            result.addLastId(id);
+        }
+        return result;
+    }
+
+    /**
+     * Paired game results of two decks: a histogram per deck, and end turn differences moments
+     */
+    private class Pairing {
+        final Histogram first = new Histogram();
+        final Histogram second = new Histogram();
+        /**
+         * Number of simulated games (per deck), and of paired ones (that didn't fail)
+         */
+        long games;
+        long count;
+        double sum;
+        double squaresSum;
+
+        void add(GameResult result, GameResult variantResult, int idx) {
+            games++;
+            first.add(result, idx);
+            second.add(variantResult, idx);
+            if (result == null || variantResult == null) {
+                // failed game (trace mode): not paired
+                return;
+            }
+            double difference = variantResult.endTurn - result.endTurn;
+            count++;
+            sum += difference;
+            squaresSum += difference * difference;
+        }
+
+        void merge(Pairing other) {
+            first.merge(other.first);
+            second.merge(other.second);
+            games += other.games;
+            count += other.count;
+            sum += other.sum;
+            squaresSum += other.squaresSum;
+        }
+
+        double getPrecision() {
+            double avg = sum / count;
+            double variance = squaresSum / count - avg * avg;
+            return Z_95 * Math.sqrt(Math.max(variance, 0) / count);
+        }
     }
 
     public DeckStats simulate(Deck deck) {
-        List<GameResult> results = IntStream.range(0, iterations)
-                .parallel()
-                // simulate a game
-                .mapToObj(idx -> simulateGame(deck, onThePlay(start, idx)))
-                // aggregate results
-                .collect(Collectors.groupingBy(Function.identity()))
-                .entrySet().stream()
-                .map(entry -> GameResult.builder()
-                        .mulligans(entry.getKey().mulligans)
-                        .onThePlay(entry.getKey().onThePlay)
-                        .outcome(entry.getKey().outcome)
-                        .endTurn(entry.getKey().endTurn)
-                        .count(entry.getValue().size())
-                        .build()
-                )
-                .collect(Collectors.toList());
-        return DeckStats.builder().deck(deck).iterations(iterations).results(results).build();
+        // when a precision is set: simulate by batches until it is reached
+        Simulation simulation = new Simulation(deck);
+        while (simulation.getIterations() < iterations) {
+            simulation.run(precision > 0 ? Math.min(BATCH_SIZE, iterations - simulation.getIterations()) : iterations);
+            if (simulation.getPrecision() <= precision) {
+                break;
+            }
+        }
+        return simulation.getStats();
+    }
+
+    /**
+     * Incremental simulation of a deck: games are simulated by batches (game indexes go on from batch to batch, so that
+     * results only depend on the seed and the number of games)
+     */
+    public class Simulation implements Contestant {
+        private final Deck deck;
+        // one seat (game, pilot, log) per thread, reused from game to game
+        private final ThreadLocal<Seat> seats;
+        private final Histogram histogram = new Histogram();
+        private int done = 0;
+
+        public Simulation(Deck deck) {
+            this.deck = deck;
+            this.seats = ThreadLocal.withInitial(() -> new Seat(deck));
+        }
+
+        /**
+         * Simulates the given number of additional games
+         */
+        @Override
+        public synchronized void run(int games) {
+            histogram.merge(IntStream.range(done, done + games)
+                    .parallel()
+                    // simulate games and count results in a histogram per worker
+                    .collect(
+                            Histogram::new,
+                            (worker, idx) -> worker.add(simulateGame(seats.get(), idx), idx),
+                            Histogram::merge));
+            done += games;
+        }
+
+        /**
+         * Returns the number of simulated games
+         */
+        @Override
+        public synchronized int getIterations() {
+            return done;
+        }
+
+        /**
+         * Average end turn of simulated games
+         */
+        public synchronized double getAverageWinTurn() {
+            return histogram.getAverageEndTurn();
+        }
+
+        /**
+         * Scored by the average end turn
+         */
+        @Override
+        public double getScore() {
+            return getAverageWinTurn();
+        }
+
+        /**
+         * 95% confidence interval half-width of the average end turn
+         */
+        @Override
+        public synchronized double getPrecision() {
+            return histogram.getPrecision();
+        }
+
+        public synchronized DeckStats getStats() {
+            return histogram.getStats(deck, done);
+        }
+    }
+
+    /**
+     * Game results counted by (onThePlay, mulligans, outcome, endTurn), along with the index of the first game of each
+     * result (to keep its seed)
+     */
+    private class Histogram {
+        final int turns = maxTurns + 2;
+        final long[] counts = new long[2 * (draw + 1) * 2 * turns];
+        final int[] firstGames = new int[counts.length];
+        long failed;
+
+        Histogram() {
+            Arrays.fill(firstGames, Integer.MAX_VALUE);
+        }
+
+        /**
+         * @param result game result, {@code null} if the game failed
+         */
+        void add(GameResult result, int idx) {
+            if (result == null) {
+                failed++;
+                return;
+            }
+            int index = ((((result.onThePlay ? 0 : 1) * (draw + 1) + result.mulligans) * 2 + result.outcome.ordinal()) * turns) + result.endTurn;
+            counts[index]++;
+            firstGames[index] = Math.min(firstGames[index], idx);
+        }
+
+        void merge(Histogram other) {
+            failed += other.failed;
+            for (int index = 0; index < counts.length; index++) {
+                counts[index] += other.counts[index];
+                firstGames[index] = Math.min(firstGames[index], other.firstGames[index]);
+            }
+        }
+
+        double getAverageEndTurn() {
+            long total = 0;
+            double sum = 0;
+            for (int index = 0; index < counts.length; index++) {
+                total += counts[index];
+                sum += (double) (index % turns) * counts[index];
+            }
+            return sum / total;
+        }
+
+        /**
+         * 95% confidence interval half-width of the average end turn
+         */
+        double getPrecision() {
+            long total = 0;
+            double sum = 0;
+            double squaresSum = 0;
+            for (int index = 0; index < counts.length; index++) {
+                int endTurn = index % turns;
+                total += counts[index];
+                sum += (double) endTurn * counts[index];
+                squaresSum += (double) endTurn * endTurn * counts[index];
+            }
+            double avg = sum / total;
+            double variance = squaresSum / total - avg * avg;
+            return Z_95 * Math.sqrt(Math.max(variance, 0) / total);
+        }
+
+        DeckStats getStats(Deck deck, int iterations) {
+            return DeckStats.builder().deck(deck).iterations(iterations).failed(failed).precision(getPrecision()).results(getResults()).build();
+        }
+
+        List<GameResult> getResults() {
+            List<GameResult> results = new ArrayList<>();
+            int index = 0;
+            for (int otp = 0; otp < 2; otp++) {
+                for (int mulligans = 0; mulligans <= draw; mulligans++) {
+                    for (GameResult.Outcome outcome : GameResult.Outcome.values()) {
+                        for (int endTurn = 0; endTurn < turns; endTurn++, index++) {
+                            if (counts[index] > 0) {
+                                results.add(GameResult.builder()
+                                        .onThePlay(otp == 0)
+                                        .mulligans(mulligans)
+                                        .outcome(outcome)
+                                        .endTurn(endTurn)
+                                        .count((int) counts[index])
+                                        .seed(seed + firstGames[index])
+                                        .build());
+                            }
+                        }
+                    }
+                }
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Replays a single game from its seed (see {@link GameResult#getSeed()}), and prints its log
+     *
+     * @param deck     the simulated deck
+     * @param gameSeed seed of the game to replay
+     * @return game result
+     */
+    public GameResult replay(Deck deck, long gameSeed) {
+        Seat seat = new Seat(deck);
+        try {
+            return simulateGame(seat, onThePlay(start, gameSeed), gameSeed, true);
+        } finally {
+            System.out.println(seat.log);
+        }
     }
 
-    private boolean onThePlay(Start start, int idx) {
+    /**
+     * With {@link Start#BOTH}, games with an even seed are on the play (consecutive games alternate)
+     */
+    private boolean onThePlay(Start start, long gameSeed) {
         switch (start) {
             case OTP:
                 return true;
@@ -172,46 +568,115 @@ public class GoldfishSimulator {
                 return false;
             case BOTH:
             default:
-                return idx % 2 == 0;
+                return (gameSeed & 1) == 0;
         }
     }
 
-    GameResult simulateGame(Deck deck, boolean onThePlay) {
-        // instantiate new game
-        StringWriter output = new StringWriter();
-        PrintWriter writer = new PrintWriter(output);
-        Game game = new Game(onThePlay, writer);
+    /**
+     * What a thread needs to play games with a deck: a game, its log (allocated on the first traced game), a pilot, a
+     * shuffler, and the random generator and lists the hand and the library are drawn into (reused from game to game)
+     */
+    private class Seat {
+        GameLog log;
+        final Game game = new Game(true, null);
+        final Shuffler shuffler;
+        final SeedableRandom random = new SeedableRandom(0);
+        final Cards hand = Cards.none();
+        final Cards library = Cards.none();
+        DeckPilot pilot;
+
+        Seat(Deck deck) {
+            this.shuffler = new Shuffler(deck.getMain());
+        }
+
+        void reset(boolean onThePlay, long gameSeed, boolean trace) {
+            if (trace && log == null) {
+                log = new GameLog();
+            }
+            game.reset(onThePlay, random.reseed(gameSeed), trace ? log : null);
+            if (pilot == null || !pilot.reset()) {
+                pilot = newPilot(game);
+            }
+        }
+    }
 
-        // instantiate deck pilot (from class)
-        DeckPilot pilot = null;
+    private DeckPilot newPilot(Game game) {
         try {
-            pilot = pilotClass.getConstructor(Game.class).newInstance(game);
-        } catch (Exception e) {
+            return (DeckPilot) PILOT_CONSTRUCTORS.get(pilotClass).invokeExact(game);
+        } catch (Throwable e) {
             throw new RuntimeException("Couldn't instantiate pilot", e);
         }
+    }
 
-        writer.println("=====================");
-        writer.println("=== New Game: " + (onThePlay ? "OTP" : "OTD") + " ===");
-        writer.println("=====================");
-
-        // 1: select opening hand
-        while (true) {
-            Cards library = deck.getMain().shuffle();
-            Cards hand = library.draw(draw);
-            if (pilot.keepHand(hand)) {
-                game.keepHandAndStart(library, hand);
-                break;
+    /**
+     * Simulates game #idx
+     * <p>
+     * Games are only traced in verbose or trace mode. As a game only depends on its index, a failed game is replayed
+     * with tracing enabled, so that the error holds the game log. In trace mode, the trace of a failed game is written
+     * and the simulation goes on.
+     *
+     * @return game result, {@code null} if the game failed (trace mode only)
+     */
+    private GameResult simulateGame(Seat seat, int idx) {
+        long gameSeed = seed + idx;
+        boolean onThePlay = onThePlay(start, gameSeed);
+        boolean trace = verbose || traces != null;
+        try {
+            GameResult result = simulateGame(seat, onThePlay, gameSeed, trace);
+            if (traces != null && traces.accept(result)) {
+                traces.write("game #" + idx + ": " + result, seat.log);
+            }
+            return result;
+        } catch (GameInternalError e) {
+            if (traces != null) {
+                traces.write("game #" + idx + ": FAILED (" + e.getCause() + ")", seat.log);
+                return null;
+            }
+            if (trace) {
+                throw e;
+            }
+            simulateGame(seat, onThePlay, gameSeed, true);
+            // replay didn't fail (non reproducible game)
+            throw e;
+        } finally {
+            if (verbose) {
+                System.out.println(seat.log);
+                System.out.println();
             }
-            game.rejectHand(hand);
         }
-        // 2: start and check mulligans have been taken
-        pilot.start();
+    }
 
-        if (game.getHand().size() > draw - game.getMulligans()) {
-            throw new IllegalStateException("You shouldn't have " + game.getHand().size() + " cards in hand after " + game.getMulligans() + " mulligans.");
-        }
+    private GameResult simulateGame(Seat seat, boolean onThePlay, long gameSeed, boolean trace) {
+        // reset game and deck pilot
+        seat.reset(onThePlay, gameSeed, trace);
+        Game game = seat.game;
+        DeckPilot pilot = seat.pilot;
+        Shuffler shuffler = seat.shuffler;
+        SeedableRandom random = seat.random;
 
         try {
+            if (game.isTracing()) {
+                game.log("=====================");
+                game.log("=== New Game: " + (onThePlay ? "OTP" : "OTD") + " ===");
+                game.log("=====================");
+            }
+
+            // 1: select opening hand (only hand cards are shuffled until it is kept)
+            while (true) {
+                Cards hand = shuffler.reset().draw(draw, random, seat.hand);
+                if (pilot.keepHand(hand)) {
+                    game.keepHandAndStart(shuffler.drawAll(random, seat.library), hand);
+                    break;
+                }
+                game.rejectHand(hand);
+            }
+            // 2: start and check mulligans have been taken
+            pilot.start();
+
+            if (game.getHand().size() > draw - game.getMulligans()) {
+                throw new IllegalStateException("You shouldn't have " + game.getHand().size() + " cards in hand after " + game.getMulligans() + " mulligans.");
+            }
+
             while (game.getCurrentTurn() <= maxTurns) {
                 // start next turn
                 game.startNextTurn();
@@ -251,34 +716,33 @@ public class GoldfishSimulator {
                 // check won
                 String winReason = pilot.checkWin();
                 if (winReason != null) {
-                    writer.println("===> WIN: " + winReason);
+                    if (game.isTracing()) {
+                        game.log("===> WIN: " + winReason);
+                    }
                     return GameResult.builder()
                             .onThePlay(game.isOnThePlay())
                             .mulligans(game.getMulligans())
                             .outcome(GameResult.Outcome.WON)
                             .endTurn(game.getCurrentTurn())
 //                            .reason(winReason)
+                            .seed(gameSeed)
                             .build();
                 }
             }
-            writer.println("===> MAX TURNS REACHED");
+            game.log("===> MAX TURNS REACHED");
             return GameResult.builder()
                     .onThePlay(game.isOnThePlay())
                     .mulligans(game.getMulligans())
                     .outcome(GameResult.Outcome.TIMEOUT)
                     .endTurn(maxTurns + 1)
+                    .seed(gameSeed)
                     .build();
         } catch (Exception e) {
-            throw new GameInternalError("An unexpected error occurred in a game\n\n" + output.toString(), e);
-        } finally {
-            if (verbose) {
-                System.out.println(output.toString());
-                System.out.println();
-            }
+            throw new GameInternalError("An unexpected error occurred in game with seed " + gameSeed + (trace ? "\n\n" + seat.log : ""), e);
         }
     }
 
-    @EqualsAndHashCode(exclude = "count")
+    @EqualsAndHashCode(exclude = {"count", "seed"})
     @Builder
     @Value
     public static class GameResult {
@@ -290,5 +754,9 @@ public class GoldfishSimulator {
         final int endTurn;
         @Builder.Default
         final int count = 1;
+        /**
+         * Seed of the game (of one of the games when aggregated), to replay it with {@link GoldfishSimulator#replay(Deck, long)}
+         */
+        final Long seed;
     }
 }
@@ -0,0 +1,232 @@
+package org.mtgpeasant.perfectdeck.goldfish;
+
+import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.Mana;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Finds the cheapest way to produce mana from a set of {@link ManaSource}s
+ * <p>
+ * The search is a depth-first search on (available sources, remaining cost) that pays colored mana first, memoized on
+ * that state: as the number of copies of each source is small, board states repeat a lot from one action (and one game)
+ * to the next, and most lookups are answered from the memo.
+ * <p>
+ * Both parts of the state are packed in a {@code long} (counts of available sources, and {@link Mana#getBits()}), so
+ * that a lookup allocates nothing. The memo is a fixed size direct-mapped table (an entry evicts the previous one with
+ * the same slot), so its memory is bounded whatever the number of simulated games.
+ * <p>
+ * A solver is thread-safe and is meant to be shared by all pilots of a deck: memo entries are immutable, and a lost
+ * update only costs a new search. Sources are counted up to 15 copies each.
+ */
+public class ManaSolver {
+    private static final int MAX_SOURCES = 15;
+    private static final int COUNT_BITS = 4;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long LAND_DROP_BIT = 1L << (MAX_SOURCES * COUNT_BITS);
+    private static final int MEMO_BITS = 15;
+    private static final String COLORS = "BUGRW";
+    private static final Mana X = Mana.of("1");
+    /**
+     * One mana of each color (same order as {@link #COLORS})
+     */
+    private static final Mana[] UNITS = {Mana.of("B"), Mana.of("U"), Mana.of("G"), Mana.of("R"), Mana.of("W")};
+    private static final Choice FREE = new Choice(0, 0, 0, -1, null, 0);
+
+    /**
+     * One source used to produce one mana
+     */
+    @Value
+    public static class Payment {
+        final ManaSource source;
+        final Mana mana;
+    }
+
+    /**
+     * Ordered list of sources to use
+     */
+    @Value
+    public static class Plan {
+        final List<Payment> payments;
+        /**
+         * Total cost of used sources
+         */
+        final int cost;
+
+        /**
+         * Uses all sources of the plan to add their mana to the pool
+         */
+        public void apply(Game game) {
+            payments.forEach(payment -> payment.getSource().use(game, payment.getMana()));
+        }
+    }
+
+    /**
+     * Best first step from a state (and total cost of the best plan from there), memoized with its state
+     */
+    @Value
+    private static class Choice {
+        final long available;
+        final long remaining;
+        /**
+         * Total cost of the best plan ({@link Integer#MAX_VALUE} if the remaining cost can't be paid)
+         */
+        final int cost;
+        final int source;
+        final Mana mana;
+        /**
+         * Remaining cost after this step
+         */
+        final long next;
+
+        boolean isPossible() {
+            return cost != Integer.MAX_VALUE;
+        }
+    }
+
+    private final List<ManaSource> sources;
+    /**
+     * Mana produced by each source when paying colorless mana
+     */
+    private final Mana[] colorless;
+    private final Choice[] memo = new Choice[1 << MEMO_BITS];
+
+    /**
+     * @param sources mana sources, ordered by preference (on equal cost, the first sources are used first)
+     */
+    public ManaSolver(ManaSource... sources) {
+        if (sources.length > MAX_SOURCES) {
+            throw new IllegalArgumentException("Too many mana sources (max " + MAX_SOURCES + ")");
+        }
+        this.sources = Collections.unmodifiableList(Arrays.asList(sources));
+        this.colorless = new Mana[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            colorless[i] = sources[i].getColors().isEmpty() ? X : Mana.of(sources[i].getColors().substring(0, 1));
+        }
+    }
+
+    /**
+     * Checks whether the given cost can be paid with the mana pool and the available sources
+     */
+    public boolean canPay(Game game, Mana cost) {
+        return solve(available(game), Mana.missing(game.getPool().getBits(), cost.getBits())).isPossible();
+    }
+
+    /**
+     * Computes the cheapest plan to complete the mana pool so that it can pay the given cost
+     *
+     * @return the plan, or empty if the cost can't be paid
+     */
+    public Optional<Plan> plan(Game game, Mana cost) {
+        long available = available(game);
+        long remaining = Mana.missing(game.getPool().getBits(), cost.getBits());
+        Choice best = solve(available, remaining);
+        if (!best.isPossible()) {
+            return Optional.empty();
+        }
+        List<Payment> payments = new ArrayList<>();
+        while (remaining != 0) {
+            Choice choice = solve(available, remaining);
+            payments.add(new Payment(sources.get(choice.getSource()), choice.getMana()));
+            available = use(available, choice.getSource());
+            remaining = choice.getNext();
+        }
+        return Optional.of(new Plan(payments, best.getCost()));
+    }
+
+    /**
+     * Uses the cheapest sources to complete the mana pool so that it can pay the given cost
+     *
+     * @throws IllegalActionException if the cost can't be paid
+     */
+    public void preparePool(Game game, Mana cost) {
+        Plan plan = plan(game, cost).orElseThrow(() -> new IllegalActionException("Can't pay " + cost + ": not enough mana sources"));
+        plan.apply(game);
+    }
+
+    private long available(Game game) {
+        long available = game.isLanded() ? 0 : LAND_DROP_BIT;
+        for (int i = 0; i < sources.size(); i++) {
+            long count = Math.min(COUNT_MASK, Math.max(0, sources.get(i).available(game)));
+            available |= count << (i * COUNT_BITS);
+        }
+        return available;
+    }
+
+    private long use(long available, int source) {
+        available -= 1L << (source * COUNT_BITS);
+        if (sources.get(source).getKind() == ManaSource.Kind.LAND_DROP) {
+            available &= ~LAND_DROP_BIT;
+        }
+        return available;
+    }
+
+    private boolean isAvailable(long available, int source) {
+        if (((available >> (source * COUNT_BITS)) & COUNT_MASK) == 0) {
+            return false;
+        }
+        return sources.get(source).getKind() != ManaSource.Kind.LAND_DROP || (available & LAND_DROP_BIT) != 0;
+    }
+
+    /**
+     * @param remaining packed remaining cost (no negative amount, so that empty is 0)
+     */
+    private Choice solve(long available, long remaining) {
+        if (remaining == 0) {
+            return FREE;
+        }
+        int slot = slot(available, remaining);
+        Choice best = memo[slot];
+        if (best != null && best.getAvailable() == available && best.getRemaining() == remaining) {
+            return best;
+        }
+        // miss: search from this state
+        Mana cost = Mana.ofBits(remaining);
+        int color = firstColor(cost);
+        long next = cost.minus(color < 0 ? X : UNITS[color]).getBits();
+        int bestCost = Integer.MAX_VALUE;
+        int bestSource = -1;
+        for (int i = 0; i < sources.size(); i++) {
+            ManaSource source = sources.get(i);
+            if (!isAvailable(available, i) || (color >= 0 && !source.produces(COLORS.charAt(color)))) {
+                continue;
+            }
+            Choice rest = solve(use(available, i), next);
+            if (rest.isPossible() && rest.getCost() + source.getCost() < bestCost) {
+                bestCost = rest.getCost() + source.getCost();
+                bestSource = i;
+            }
+        }
+        Mana produced = bestSource < 0 ? null : color >= 0 ? UNITS[color] : colorless[bestSource];
+        best = new Choice(available, remaining, bestCost, bestSource, produced, next);
+        memo[slot] = best;
+        return best;
+    }
+
+    private static int slot(long available, long remaining) {
+        long hash = (available ^ Long.rotateLeft(remaining, 32)) * 0x9e3779b97f4a7c15L;
+        return (int) (hash >>> (64 - MEMO_BITS));
+    }
+
+    /**
+     * Returns the index (in {@link #COLORS}) of the first colored mana of the cost, -1 if colorless only
+     */
+    private static int firstColor(Mana cost) {
+        if (cost.getB() > 0) {
+            return 0;
+        } else if (cost.getU() > 0) {
+            return 1;
+        } else if (cost.getG() > 0) {
+            return 2;
+        } else if (cost.getR() > 0) {
+            return 3;
+        } else if (cost.getW() > 0) {
+            return 4;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,85 @@
+package org.mtgpeasant.perfectdeck.goldfish;
+
+import lombok.Builder;
+import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.Mana;
+
+/**
+ * A card that can produce one mana, used by {@link ManaSolver}
+ */
+@Builder
+@Value
+public class ManaSource {
+    public enum Kind {
+        /**
+         * Untapped permanent on the board, tapped for mana (ex: a land)
+         */
+        TAP,
+        /**
+         * Land in hand, dropped then tapped for mana (only one per turn)
+         */
+        LAND_DROP,
+        /**
+         * Card in hand, discarded or exiled for mana (ex: simian spirit guide)
+         */
+        DISCARD,
+        /**
+         * Untapped permanent on the board, sacrificed for mana (ex: lotus petal)
+         */
+        SACRIFICE
+    }
+
+    final String card;
+    final Kind kind;
+    /**
+     * Colors the source may produce (ex: {@code BR}), empty for colorless only
+     * <p>
+     * The first color is produced when paying colorless mana.
+     */
+    @Builder.Default
+    final String colors = "";
+    /**
+     * Cost of using the source (ex: value of the sacrificed card), the solver minimizes the total cost of a payment
+     */
+    @Builder.Default
+    final int cost = 0;
+
+    boolean produces(char color) {
+        return colors.indexOf(color) >= 0;
+    }
+
+    /**
+     * Counts copies of the source that can be used in the current game state
+     */
+    int available(Game game) {
+        switch (kind) {
+            case TAP:
+            case SACRIFICE:
+                return game.countUntapped(card);
+            case LAND_DROP:
+                return game.isLanded() ? 0 : game.getHand().count(card);
+            default:
+                return game.getHand().count(card);
+        }
+    }
+
+    /**
+     * Uses one copy of the source to add the given mana to the pool
+     */
+    void use(Game game, Mana mana) {
+        switch (kind) {
+            case TAP:
+                game.tapLandForMana(card, mana);
+                break;
+            case LAND_DROP:
+                game.land(card).tapLandForMana(card, mana);
+                break;
+            case DISCARD:
+                game.discard(card).add(mana);
+                break;
+            case SACRIFICE:
+                game.sacrifice(card).add(mana);
+                break;
+        }
+    }
+}
@@ -1,18 +1,30 @@
 package org.mtgpeasant.perfectdeck.mulligan;
 
+import com.google.common.cache.AbstractCache;
+import com.google.common.cache.CacheStats;
+import com.google.common.math.LongMath;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
 import org.mtgpeasant.perfectdeck.common.cards.Cards;
 import org.mtgpeasant.perfectdeck.common.cards.Deck;
+import org.mtgpeasant.perfectdeck.common.cards.Shuffler;
 import org.mtgpeasant.perfectdeck.common.matchers.Matchers;
 import org.mtgpeasant.perfectdeck.common.matchers.MulliganRules;
+import org.mtgpeasant.perfectdeck.common.utils.SeedableRandom;
+import org.mtgpeasant.perfectdeck.optimizer.Contestant;
+import org.mtgpeasant.perfectdeck.optimizer.RacingScheduler;
 
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
 
@@ -22,52 +34,129 @@ import java.util.stream.StreamSupport;
 @Builder
 @Value
 public class MulliganSimulator {
+    /**
+     * Number of draws between two precision checks
+     */
+    private static final int BATCH_SIZE = 1000;
+    /**
+     * Normal quantile of 95% confidence intervals
+     */
+    private static final double Z_95 = 1.96;
+
     @Builder.Default
     final int draw = 7;
     @Builder.Default
     final int iterations = 50000;
     @Builder.Default
     final boolean verbose = false;
+    /**
+     * Enumerates all distinct hands (exact rates) instead of sampling {@link #iterations} draws
+     */
+    @Builder.Default
+    final boolean exact = false;
+    /**
+     * Random seed: draw #i is shuffled with a generator seeded with {@code seed + i}, so that results only depend on the
+     * seed (whatever the number of threads)
+     */
+    @Builder.Default
+    final long seed = ThreadLocalRandom.current().nextLong();
+    /**
+     * When strictly positive, draws are sampled in batches until the 95% confidence interval half-width of every rate
+     * is below this value ({@link #iterations} being the maximum number of draws)
+     */
+    @Builder.Default
+    final double precision = 0;
 
     final MulliganRules rules;
+    /**
+     * Rules compiled once and shared by all samplings, so that they share the hand matching cache (the first match of a
+     * hand doesn't depend on the deck)
+     */
+    @Getter(lazy = true)
+    private final MulliganRules compiledRules = rules.compile();
 
     @Builder
     @Getter
     public static class DeckMatches {
         final Deck deck;
-        final int iterations;
-        final Map<String, Integer> matchCount = new HashMap<>();
-        int noMatchCount = 0;
+        /**
+         * Whether rates are exact (all distinct hands enumerated) or estimated (hands sampled)
+         */
+        final boolean exact;
+        /**
+         * Number of evaluated hands (sampled draws, or distinct hands when {@link #exact})
+         */
+        int iterations;
+        final Map<String, Double> matchWeight = new HashMap<>();
+        double noMatchWeight;
+        double totalWeight;
+        /**
+         * Hit/miss statistics of the hand matching cache, for the hands of this deck only (the cache is shared by all
+         * decks)
+         */
+        CacheStats cacheStats;
+        /**
+         * Achieved precision: greatest 95% confidence interval half-width among rates (0 when {@link #exact})
+         */
+        double precision;
+
+        private void addMatch(Matchers.NamedMatcher criteria, int hands, double weight) {
+            matchWeight.merge(criteria.getName(), weight, Double::sum);
+            totalWeight += weight;
+            iterations += hands;
+        }
 
-        private void addMatch(Matchers.NamedMatcher criteria) {
-            matchCount.put(criteria.getName(), getMatchCount(criteria) + 1);
+        private void addNoMatch(int hands, double weight) {
+            noMatchWeight += weight;
+            totalWeight += weight;
+            iterations += hands;
         }
 
         /**
-         * Returns the number of matches for the given selection criterion
+         * Returns the rate of matches for the given selection criterion
          *
          * @param criteria hand selection criterion
-         * @return number of opening hands that matched this criterion
+         * @return rate (between 0 and 1) of opening hands that matched this criterion
          */
-        public int getMatchCount(Matchers.NamedMatcher criteria) {
-            return matchCount.getOrDefault(criteria.getName(), 0);
+        public double getMatchRate(Matchers.NamedMatcher criteria) {
+            return matchWeight.getOrDefault(criteria.getName(), 0d) / totalWeight;
         }
 
-        private void addNoMatch() {
-            noMatchCount++;
+        /**
+         * Returns the rate of opening hands that matched no criterion
+         *
+         * @return rate (between 0 and 1) of rejected opening hands
+         */
+        public double getNoMatchRate() {
+            return noMatchWeight / totalWeight;
         }
     }
 
     /**
      * Performs a simulation on several versions of the given deck
+     * <p>
+     * Sampled decks progress together, by batches (see {@link RacingScheduler#evaluate(List)}). Exact enumerations and
+     * verbose samplings (that print hands in order) are run one deck after the other.
      *
      * @param decksProvider provides the different version of the deck to optimize
      * @return list of opening hands statistics (one per deck)
      */
     public List<DeckMatches> simulate(Iterable<Deck> decksProvider) {
-        return StreamSupport.stream(decksProvider.spliterator(), false)
-                .map(deck -> simulate(deck))
+        if (exact || verbose) {
+            return StreamSupport.stream(decksProvider.spliterator(), false)
+                    .map(deck -> simulate(deck))
+                    .collect(Collectors.toList());
+        }
+        List<Sampling> samplings = StreamSupport.stream(decksProvider.spliterator(), false)
+                .map(Sampling::new)
                 .collect(Collectors.toList());
+        RacingScheduler.builder()
+                .batch(precision > 0 ? BATCH_SIZE : iterations)
+                .maxIterations(iterations)
+                .precision(precision)
+                .build()
+                .evaluate(samplings);
+        return samplings.stream().map(Sampling::getMatches).collect(Collectors.toList());
     }
 
     /**
@@ -77,26 +166,216 @@ public class MulliganSimulator {
      * @return opening hands statistics
      */
     public DeckMatches simulate(Deck deck) {
-        DeckMatches deckMatches = DeckMatches.builder().deck(deck).iterations(iterations).build();
+        if (!exact) {
+            // when a precision is set: sample by batches until it is reached
+            Sampling sampling = new Sampling(deck);
+            while (sampling.getIterations() < iterations) {
+                sampling.run(precision > 0 ? Math.min(BATCH_SIZE, iterations - sampling.getIterations()) : iterations);
+                if (sampling.getPrecision() <= precision) {
+                    break;
+                }
+            }
+            return sampling.getMatches();
+        }
+        DeckMatches deckMatches = DeckMatches.builder().deck(deck).exact(true).build();
+        AbstractCache.StatsCounter cacheStats = new AbstractCache.SimpleStatsCounter();
         // TODO: reduce applicable rules (exclude all rules that don't match the entire deck)
         // will not work with negative rules ?
-        for (int it = 0; it < iterations; it++) {
-            Cards hand = deck.getMain().shuffle().draw(draw);
-            Optional<Matchers.NamedMatcher> matching = rules.firstMatch(hand);
+        enumerate(deck, getCompiledRules(), cacheStats, deckMatches);
+        deckMatches.cacheStats = cacheStats.snapshot();
+        return deckMatches;
+    }
+
+    /**
+     * Incremental sampling of opening hands of a deck: draws are sampled by batches (draw indexes go on from batch to
+     * batch, so that results only depend on the seed and the number of draws)
+     * <p>
+     * Each batch is sampled in parallel: each worker draws hands from its own shuffler (reseeding its own generator and
+     * reusing its own hand, so that a draw allocates nothing) and counts matches in its own array (indexed by criterion
+     * position, last position being "no match"), arrays are summed at the end.
+     */
+    public class Sampling implements Contestant {
+        private final Deck deck;
+        private final MulliganRules compiledRules;
+        private final AbstractCache.StatsCounter cacheStats = new AbstractCache.SimpleStatsCounter();
+        private final Map<Matchers.NamedMatcher, Integer> positions = new IdentityHashMap<>();
+        private final long[] counts;
+        private int done = 0;
+
+        public Sampling(Deck deck) {
+            this.deck = deck;
+            this.compiledRules = getCompiledRules();
+            List<Matchers.NamedMatcher> criteria = compiledRules.getCriteria();
+            for (int i = 0; i < criteria.size(); i++) {
+                positions.put(criteria.get(i), i);
+            }
+            counts = new long[criteria.size() + 1];
+        }
+
+        /**
+         * Samples the given number of additional draws
+         */
+        @Override
+        public synchronized void run(int draws) {
+            int noMatch = positions.size();
+            IntStream its = IntStream.range(done, done + draws);
+            if (!verbose) {
+                // keep verbose output in order
+                its = its.parallel();
+            }
+            long[] batchCounts = its.collect(
+                    () -> new Worker(new long[noMatch + 1], new Shuffler(deck.getMain()), new SeedableRandom(seed), Cards.none()),
+                    (worker, it) -> {
+                        Cards hand = worker.shuffler.reset().draw(draw, worker.random.reseed(seed + it), worker.hand);
+                        Optional<Matchers.NamedMatcher> matching = compiledRules.firstMatch(hand, cacheStats);
+                        worker.counts[matching.isPresent() ? positions.get(matching.get()) : noMatch]++;
+                        log(hand, matching, 1);
+                    },
+                    (worker1, worker2) -> {
+                        for (int i = 0; i < worker1.counts.length; i++) {
+                            worker1.counts[i] += worker2.counts[i];
+                        }
+                    }).counts;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += batchCounts[i];
+            }
+            done += draws;
+        }
+
+        /**
+         * Returns the number of sampled draws
+         */
+        @Override
+        public synchronized int getIterations() {
+            return done;
+        }
+
+        /**
+         * Returns the rate of sampled hands that matched no criterion
+         */
+        public synchronized double getNoMatchRate() {
+            return (double) counts[counts.length - 1] / done;
+        }
+
+        /**
+         * 95% confidence interval half-width of the no match rate
+         */
+        public synchronized double getNoMatchPrecision() {
+            return precision(counts[counts.length - 1]);
+        }
+
+        /**
+         * Scored by the no match rate
+         */
+        @Override
+        public double getScore() {
+            return getNoMatchRate();
+        }
+
+        /**
+         * Greatest 95% confidence interval half-width among rates (normal approximation of binomial proportions)
+         */
+        @Override
+        public synchronized double getPrecision() {
+            double max = 0;
+            for (long count : counts) {
+                max = Math.max(max, precision(count));
+            }
+            return max;
+        }
+
+        private double precision(long count) {
+            double rate = (double) count / done;
+            return Z_95 * Math.sqrt(rate * (1 - rate) / done);
+        }
+
+        /**
+         * Returns opening hands statistics of sampled draws
+         */
+        public synchronized DeckMatches getMatches() {
+            DeckMatches deckMatches = DeckMatches.builder().deck(deck).exact(false).build();
+            List<Matchers.NamedMatcher> criteria = compiledRules.getCriteria();
+            for (int i = 0; i < criteria.size(); i++) {
+                deckMatches.addMatch(criteria.get(i), (int) counts[i], counts[i]);
+            }
+            deckMatches.addNoMatch((int) counts[criteria.size()], counts[criteria.size()]);
+            deckMatches.precision = getPrecision();
+            deckMatches.cacheStats = cacheStats.snapshot();
+            return deckMatches;
+        }
+    }
+
+    @Value
+    private static class Worker {
+        final long[] counts;
+        final Shuffler shuffler;
+        final SeedableRandom random;
+        final Cards hand;
+    }
+
+    /**
+     * Enumerates all distinct opening hands (as multisets), each one weighted by its number of possible draws
+     * (multivariate hypergeometric distribution)
+     */
+    private void enumerate(Deck deck, MulliganRules compiledRules, AbstractCache.StatsCounter cacheStats, DeckMatches deckMatches) {
+        // number of copies per card
+        Map<Integer, Integer> copies = new LinkedHashMap<>();
+        for (int i = 0; i < deck.getMain().size(); i++) {
+            copies.merge(deck.getMain().idAt(i), 1, Integer::sum);
+        }
+        int[] ids = copies.keySet().stream().mapToInt(Integer::intValue).toArray();
+        int[] counts = copies.values().stream().mapToInt(Integer::intValue).toArray();
+        // total number of copies from card #i to the last one
+        int[] remainingCounts = new int[ids.length + 1];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            remainingCounts[i] = remainingCounts[i + 1] + counts[i];
+        }
+        enumerate(compiledRules, cacheStats, ids, counts, remainingCounts, 0, draw, CardCounts.none(), 1, deckMatches);
+    }
+
+    /**
+     * Takes 0 to n copies of card #index, then recurses on next cards
+     */
+    private void enumerate(MulliganRules compiledRules, AbstractCache.StatsCounter cacheStats, int[] ids, int[] counts, int[] remainingCounts, int index, int left, CardCounts hand, double weight, DeckMatches deckMatches) {
+        if (left == 0) {
+            addResult(hand, compiledRules.firstMatch(hand, cacheStats), weight, deckMatches);
+            return;
+        }
+        if (remainingCounts[index] < left) {
+            // not enough cards left to complete the hand
+            return;
+        }
+        int max = Math.min(counts[index], left);
+        for (int taken = 0; taken <= max; taken++) {
+            if (taken > 0) {
+                hand.put(ids[index]);
+            }
+            enumerate(compiledRules, cacheStats, ids, counts, remainingCounts, index + 1, left - taken, hand, weight * LongMath.binomial(counts[index], taken), deckMatches);
+        }
+        for (int taken = 0; taken < max; taken++) {
+            hand.take(ids[index]);
+        }
+    }
+
+    private void addResult(Object hand, Optional<Matchers.NamedMatcher> matching, double weight, DeckMatches deckMatches) {
+        if (matching.isPresent()) {
+            // increment match count
+            deckMatches.addMatch(matching.get(), 1, weight);
+        } else {
+            deckMatches.addNoMatch(1, weight);
+        }
+        log(hand, matching, weight);
+    }
+
+    private void log(Object hand, Optional<Matchers.NamedMatcher> matching, double weight) {
+        if (verbose) {
+            String draws = exact ? " (x" + (long) weight + ")" : "";
             if (matching.isPresent()) {
-                // increment match count
-                deckMatches.addMatch(matching.get());
-                if (verbose) {
-                    System.out.println(hand + " matches: " + matching.get().getName());
-                }
+                System.out.println(hand + draws + " matches: " + matching.get().getName());
             } else {
-                deckMatches.addNoMatch();
-                if (verbose) {
-                    System.out.println(hand + " rejected (no match)");
-                }
+                System.out.println(hand + draws + " rejected (no match)");
             }
         }
-        return deckMatches;
     }
 
 }
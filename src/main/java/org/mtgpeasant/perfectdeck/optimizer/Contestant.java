@@ -0,0 +1,26 @@
+package org.mtgpeasant.perfectdeck.optimizer;
+
+/**
+ * A candidate in a race: evaluated incrementally, by batches of iterations
+ */
+public interface Contestant {
+    /**
+     * Runs the given number of additional iterations
+     */
+    void run(int iterations);
+
+    /**
+     * Returns the number of iterations run so far
+     */
+    int getIterations();
+
+    /**
+     * Returns the estimated score (the lower, the better)
+     */
+    double getScore();
+
+    /**
+     * Returns the 95% confidence interval half-width of the estimated score
+     */
+    double getPrecision();
+}
@@ -0,0 +1,97 @@
+package org.mtgpeasant.perfectdeck.optimizer;
+
+import lombok.Getter;
+import org.mtgpeasant.perfectdeck.common.cards.Deck;
+import org.mtgpeasant.perfectdeck.goldfish.GoldfishSimulator;
+import org.mtgpeasant.perfectdeck.mulligan.MulliganSimulator;
+
+/**
+ * Decks as race contestants
+ */
+public class DeckContestants {
+    /**
+     * A deck scored by its average goldfish win turn
+     */
+    public static class Goldfish implements Contestant {
+        @Getter
+        private final Deck deck;
+        private final GoldfishSimulator.Simulation simulation;
+
+        public Goldfish(GoldfishSimulator simulator, Deck deck) {
+            this.deck = deck;
+            this.simulation = simulator.new Simulation(deck);
+        }
+
+        @Override
+        public void run(int iterations) {
+            simulation.run(iterations);
+        }
+
+        @Override
+        public int getIterations() {
+            return simulation.getIterations();
+        }
+
+        @Override
+        public double getScore() {
+            return simulation.getAverageWinTurn();
+        }
+
+        @Override
+        public double getPrecision() {
+            return simulation.getPrecision();
+        }
+
+        public GoldfishSimulator.DeckStats getStats() {
+            return simulation.getStats();
+        }
+
+        @Override
+        public String toString() {
+            return "goldfish avg win turn " + String.format("%.2f ±%.2f", getScore(), getPrecision()) + " (" + getIterations() + " games)";
+        }
+    }
+
+    /**
+     * A deck scored by its rate of opening hands that match no mulligan criterion
+     */
+    public static class Mulligans implements Contestant {
+        @Getter
+        private final Deck deck;
+        private final MulliganSimulator.Sampling sampling;
+
+        public Mulligans(MulliganSimulator simulator, Deck deck) {
+            this.deck = deck;
+            this.sampling = simulator.new Sampling(deck);
+        }
+
+        @Override
+        public void run(int iterations) {
+            sampling.run(iterations);
+        }
+
+        @Override
+        public int getIterations() {
+            return sampling.getIterations();
+        }
+
+        @Override
+        public double getScore() {
+            return sampling.getNoMatchRate();
+        }
+
+        @Override
+        public double getPrecision() {
+            return sampling.getNoMatchPrecision();
+        }
+
+        public MulliganSimulator.DeckMatches getMatches() {
+            return sampling.getMatches();
+        }
+
+        @Override
+        public String toString() {
+            return "no match rate " + String.format("%.1f%% ±%.1f%%", 100 * getScore(), 100 * getPrecision()) + " (" + getIterations() + " draws)";
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package org.mtgpeasant.perfectdeck.optimizer;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import org.mtgpeasant.perfectdeck.common.cards.CardDictionary;
+import org.mtgpeasant.perfectdeck.common.cards.Cards;
+import org.mtgpeasant.perfectdeck.common.cards.Deck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Optimizes a deck by local search among its variants
+ * <p>
+ * A variant moves one copy of a card from the main deck to the sideboard, and one copy of another card from the
+ * sideboard to the main deck, within {@link Slot} bounds (cards without slot are never moved).
+ * <p>
+ * Variants are compared with common random numbers: all variants are evaluated by the same simulator (thus with the
+ * same seed stream), and a variant keeps the card positions of the deck it derives from (the added card takes the place
+ * of the removed one), so that iteration #i of two neighbors mostly draws the same cards.
+ */
+@Builder
+@Value
+public class DeckOptimizer {
+    public enum Strategy {
+        /**
+         * At each step, races the current deck against all its neighbors and moves to the best one (stops on a local
+         * optimum)
+         */
+        HILL_CLIMBING,
+        /**
+         * At each step, evaluates a random neighbor and moves to it if better, or with a probability that decreases
+         * with the temperature otherwise
+         */
+        ANNEALING
+    }
+
+    /**
+     * A card whose number of copies in the main deck may vary between min and max
+     */
+    @Builder
+    @Value
+    public static class Slot {
+        final String card;
+        final int min;
+        final int max;
+
+        /**
+         * Parses slots, formatted as {@code card name=min..max; other card=min..max}
+         */
+        public static List<Slot> parse(String slots) {
+            List<Slot> parsed = new ArrayList<>();
+            for (String slot : slots.split(";")) {
+                if (slot.trim().isEmpty()) {
+                    continue;
+                }
+                String[] nameAndRange = slot.split("=");
+                String[] range = nameAndRange.length == 2 ? nameAndRange[1].split("\\.\\.") : new String[0];
+                if (range.length != 2) {
+                    throw new IllegalArgumentException("Invalid slot '" + slot.trim() + "' (expected: card name=min..max)");
+                }
+                parsed.add(new Slot(nameAndRange[0].trim().toLowerCase(), Integer.parseInt(range[0].trim()), Integer.parseInt(range[1].trim())));
+            }
+            return parsed;
+        }
+    }
+
+    @Value
+    public static class Result {
+        final Deck deck;
+        /**
+         * Evaluation of the best deck
+         */
+        final Contestant evaluation;
+        final int steps;
+        /**
+         * Number of evaluated variants
+         */
+        final int variants;
+
+        /**
+         * Returns the main deck as a list (one line per card)
+         */
+        public String getDeckList() {
+            Map<String, Integer> counts = new TreeMap<>();
+            for (int i = 0; i < deck.getMain().size(); i++) {
+                counts.merge(CardDictionary.name(deck.getMain().idAt(i)), 1, Integer::sum);
+            }
+            StringBuilder list = new StringBuilder();
+            counts.forEach((card, count) -> list.append(count).append(' ').append(card).append('\n'));
+            return list.toString();
+        }
+    }
+
+    @Singular
+    final List<Slot> slots;
+    /**
+     * Builds the evaluation of a deck (ex: {@link DeckContestants.Goldfish}), the lower the score, the better
+     */
+    final Function<Deck, ? extends Contestant> objective;
+    @Builder.Default
+    final Strategy strategy = Strategy.HILL_CLIMBING;
+    /**
+     * Maximum number of iterations to evaluate a variant
+     */
+    @Builder.Default
+    final int iterations = 10000;
+    /**
+     * Iterations per racing round (hill climbing)
+     */
+    @Builder.Default
+    final int batch = 1000;
+    @Builder.Default
+    final int maxSteps = 50;
+    /**
+     * Initial temperature (annealing), in score unit
+     */
+    @Builder.Default
+    final double temperature = 0.1;
+    /**
+     * Temperature factor applied at each step (annealing)
+     */
+    @Builder.Default
+    final double cooling = 0.9;
+    /**
+     * Random seed of neighbors selection (annealing)
+     */
+    @Builder.Default
+    final long seed = ThreadLocalRandom.current().nextLong();
+    @Builder.Default
+    final boolean verbose = false;
+
+    /**
+     * A deck variant and a snapshot of its evaluation
+     * <p>
+     * The evaluation (simulation state) is only kept while the variant is in use, and is released once it loses: a
+     * released variant that comes back is evaluated again from scratch, replaying the same iterations (results only depend
+     * on the simulator seed and the iteration index).
+     */
+    private class Variant implements Contestant {
+        final Deck deck;
+        private Contestant evaluation;
+        private int iterations;
+        private double score;
+        private double precision;
+
+        Variant(Deck deck) {
+            this.deck = deck;
+            this.evaluation = objective.apply(deck);
+            snapshot();
+        }
+
+        @Override
+        public void run(int iterations) {
+            evaluation().run(iterations);
+            snapshot();
+        }
+
+        @Override
+        public int getIterations() {
+            return iterations;
+        }
+
+        @Override
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public double getPrecision() {
+            return precision;
+        }
+
+        /**
+         * Returns the evaluation, rebuilt if released
+         */
+        Contestant evaluation() {
+            if (evaluation == null) {
+                evaluation = objective.apply(deck);
+                if (iterations > 0) {
+                    evaluation.run(iterations);
+                }
+            }
+            return evaluation;
+        }
+
+        /**
+         * Releases the evaluation, only keeping its snapshot
+         */
+        void release() {
+            evaluation = null;
+        }
+
+        private void snapshot() {
+            iterations = evaluation.getIterations();
+            score = evaluation.getScore();
+            precision = evaluation.getPrecision();
+        }
+    }
+
+    public Result optimize(Deck deck) {
+        // variants by main deck composition (released variants only keep a snapshot of their evaluation)
+        Map<List<Integer>, Variant> variants = new HashMap<>();
+        Variant current = variant(deck, variants);
+        int steps = 0;
+        if (strategy == Strategy.ANNEALING) {
+            SplittableRandom random = new SplittableRandom(seed);
+            Variant best = evaluate(current);
+            double t = temperature;
+            for (; steps < maxSteps; steps++) {
+                List<Deck> neighbors = neighbors(current.deck);
+                if (neighbors.isEmpty()) {
+                    break;
+                }
+                Variant candidate = evaluate(variant(neighbors.get(random.nextInt(neighbors.size())), variants));
+                Variant previous = current;
+                Variant previousBest = best;
+                double delta = candidate.getScore() - current.getScore();
+                if (delta < 0 || random.nextDouble() < Math.exp(-delta / t)) {
+                    current = candidate;
+                    if (current.getScore() < best.getScore()) {
+                        best = current;
+                    }
+                }
+                // only the current and best variants keep their evaluation
+                for (Variant variant : Arrays.asList(candidate, previous, previousBest)) {
+                    if (variant != current && variant != best) {
+                        variant.release();
+                    }
+                }
+                log(steps, current);
+                t *= cooling;
+            }
+            current = best;
+        } else {
+            RacingScheduler scheduler = RacingScheduler.builder().batch(batch).maxIterations(iterations).build();
+            for (; steps < maxSteps; steps++) {
+                List<Variant> contestants = new ArrayList<>();
+                contestants.add(current);
+                for (Deck neighbor : neighbors(current.deck)) {
+                    contestants.add(variant(neighbor, variants));
+                }
+                Variant winner = scheduler.race(contestants).getSurvivors().get(0);
+                // only the winner keeps its evaluation
+                for (Variant contestant : contestants) {
+                    if (contestant != winner) {
+                        contestant.release();
+                    }
+                }
+                if (winner == current) {
+                    // local optimum
+                    break;
+                }
+                current = winner;
+                log(steps, current);
+            }
+        }
+        return new Result(current.deck, current.evaluation(), steps, variants.size());
+    }
+
+    private Variant variant(Deck deck, Map<List<Integer>, Variant> variants) {
+        int[] ids = deck.getMain().toIdArray();
+        Arrays.sort(ids);
+        List<Integer> key = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            key.add(id);
+        }
+        return variants.computeIfAbsent(key, k -> new Variant(deck));
+    }
+
+    private Variant evaluate(Variant variant) {
+        if (variant.getIterations() < iterations) {
+            variant.run(iterations - variant.getIterations());
+        }
+        return variant;
+    }
+
+    /**
+     * Lists all decks that differ from the given one by one card out and one card in
+     */
+    List<Deck> neighbors(Deck deck) {
+        List<Deck> neighbors = new ArrayList<>();
+        for (Slot out : slots) {
+            int outId = CardDictionary.id(out.card);
+            if (deck.getMain().countIds(outId) <= out.min) {
+                continue;
+            }
+            for (Slot in : slots) {
+                int inId = CardDictionary.id(in.card);
+                if (inId == outId || deck.getMain().countIds(inId) >= in.max || !deck.getSideboard().containsId(inId)) {
+                    continue;
+                }
+                neighbors.add(Deck.builder()
+                        .main(replaceFirst(deck.getMain(), outId, inId))
+                        .sideboard(replaceFirst(deck.getSideboard(), inId, outId))
+                        .build());
+            }
+        }
+        return neighbors;
+    }
+
+    /**
+     * Copies cards, replacing the first copy of a card with another one (at the same position)
+     */
+    private static Cards replaceFirst(Cards cards, int replacedId, int replacingId) {
+        Cards replaced = Cards.none();
+        boolean done = false;
+        for (int i = 0; i < cards.size(); i++) {
+            int id = cards.idAt(i);
+            if (!done && id == replacedId) {
+                id = replacingId;
+                done = true;
+            }
+            replaced.addLastId(id);
+        }
+        return replaced;
+    }
+
+    private void log(int step, Variant variant) {
+        if (verbose) {
+            System.out.println("step " + (step + 1) + ": " + variant.evaluation());
+        }
+    }
+}
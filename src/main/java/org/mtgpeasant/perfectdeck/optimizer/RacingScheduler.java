@@ -0,0 +1,134 @@
+package org.mtgpeasant.perfectdeck.optimizer;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Evaluates several contestants together: at each round, every remaining contestant runs a batch of iterations (all
+ * batches run concurrently in the common fork/join pool), then clearly worse contestants are dropped.
+ * <p>
+ * Two dropping strategies are supported:
+ * <ul>
+ * <li>{@link Strategy#RACING}: drops contestants whose confidence interval lies entirely above the best one's,</li>
+ * <li>{@link Strategy#HALVING}: successive halving, drops the worst half of contestants.</li>
+ * </ul>
+ * <p>
+ * {@link #evaluate(List)} runs contestants the same way, by rounds, but without dropping any.
+ */
+@Builder
+@Value
+public class RacingScheduler {
+    public enum Strategy {RACING, HALVING}
+
+    /**
+     * Iterations run by each contestant per round
+     */
+    @Builder.Default
+    final int batch = 1000;
+    /**
+     * Maximum number of iterations per contestant
+     */
+    @Builder.Default
+    final int maxIterations = 50000;
+    /**
+     * The race stops when no more than this number of contestants remain
+     */
+    @Builder.Default
+    final int survivors = 1;
+    @Builder.Default
+    final Strategy strategy = Strategy.RACING;
+    /**
+     * When evaluating, a contestant stops once its precision is below this value
+     */
+    @Builder.Default
+    final double precision = 0;
+
+    @Value
+    public static class Result<C extends Contestant> {
+        /**
+         * Contestants still in the race at the end, best first
+         */
+        final List<C> survivors;
+        /**
+         * Dropped contestants, in drop order (so the last ones are the best of them)
+         */
+        final List<C> dropped;
+        final int rounds;
+    }
+
+    public <C extends Contestant> Result<C> race(List<C> contestants) {
+        List<C> alive = new ArrayList<>(contestants);
+        List<C> dropped = new ArrayList<>();
+        int rounds = 0;
+        while (alive.size() > survivors && alive.stream().anyMatch(contestant -> contestant.getIterations() < maxIterations)) {
+            // all contestants progress together (contestants may have been partially evaluated in a previous race)
+            round(alive);
+            rounds++;
+            alive.sort(Comparator.comparingDouble(Contestant::getScore));
+            List<C> worse = strategy == Strategy.HALVING ? halve(alive) : outraced(alive);
+            alive.removeAll(worse);
+            // worst ones first
+            for (int i = worse.size() - 1; i >= 0; i--) {
+                dropped.add(worse.get(i));
+            }
+        }
+        alive.sort(Comparator.comparingDouble(Contestant::getScore));
+        return new Result<>(alive, dropped, rounds);
+    }
+
+    /**
+     * Runs all contestants together, by rounds, until each one reaches {@link #maxIterations} or {@link #precision} (no
+     * contestant is dropped)
+     *
+     * @return the given contestants
+     */
+    public <C extends Contestant> List<C> evaluate(List<C> contestants) {
+        List<C> running = new ArrayList<>(contestants);
+        while (!running.isEmpty()) {
+            round(running);
+            running.removeIf(contestant -> contestant.getIterations() >= maxIterations || contestant.getPrecision() <= precision);
+        }
+        return contestants;
+    }
+
+    /**
+     * Runs one batch of each contestant, concurrently
+     */
+    private void round(List<? extends Contestant> contestants) {
+        contestants.parallelStream().forEach(contestant -> {
+            int iterations = Math.min(batch, maxIterations - contestant.getIterations());
+            if (iterations > 0) {
+                contestant.run(iterations);
+            }
+        });
+    }
+
+    /**
+     * Returns contestants whose confidence interval lies entirely above the best contestant's one (ranked)
+     */
+    private <C extends Contestant> List<C> outraced(List<C> ranked) {
+        C best = ranked.get(0);
+        double threshold = best.getScore() + best.getPrecision();
+        // from the worst one, as long as enough contestants survive
+        List<C> worse = new ArrayList<>();
+        for (int i = ranked.size() - 1; i > 0 && ranked.size() - worse.size() > survivors; i--) {
+            C contestant = ranked.get(i);
+            if (contestant.getScore() - contestant.getPrecision() > threshold) {
+                worse.add(0, contestant);
+            }
+        }
+        return worse;
+    }
+
+    /**
+     * Returns the worst half of contestants (keeping at least {@link #survivors})
+     */
+    private <C extends Contestant> List<C> halve(List<C> ranked) {
+        int keep = Math.max(survivors, (ranked.size() + 1) / 2);
+        return new ArrayList<>(ranked.subList(keep, ranked.size()));
+    }
+}
@@ -2,12 +2,47 @@ package org.mtgpeasant.decks;
 
 import org.junit.Test;
 import org.mtgpeasant.perfectdeck.Tools;
+import org.mtgpeasant.perfectdeck.common.Mana;
+import org.mtgpeasant.perfectdeck.common.cards.Cards;
+import org.mtgpeasant.perfectdeck.common.utils.Permutations;
+import org.mtgpeasant.perfectdeck.goldfish.Game;
+import org.mtgpeasant.perfectdeck.goldfish.GameMock;
 import org.mtgpeasant.perfectdeck.goldfish.GoldfishSimulator;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 public class InfectDeckPilotTest {
+    @Test
+    public void best_order_should_match_all_permutations() {
+        // GIVEN
+        Game game = GameMock.mock(true, Cards.none(), Cards.none(), Cards.none(), Cards.none(), Cards.none());
+        InfectDeckPilot pilot = new InfectDeckPilot(game);
+        List<String> boosts = Arrays.asList(
+                InfectDeckPilot.RANGER_S_GUILE, InfectDeckPilot.VINES_OF_VASTWOOD, InfectDeckPilot.RANCOR,
+                InfectDeckPilot.LARGER_THAN_LIFE, InfectDeckPilot.GROUNDSWELL, InfectDeckPilot.GIANT_GROWTH);
+
+        for (int g = 0; g <= 5; g++) {
+            Mana pool = Mana.of(0, 0, g, 0, 0, 0);
+
+            // WHEN
+            InfectDeckPilot.Sim best = pilot.bestOrder(pool, boosts);
+
+            // THEN
+            int bruteForce = Permutations.of(boosts)
+                    .mapToInt(order -> pilot.simulate(pool, order.collect(Collectors.toList())).getCounters())
+                    .max().getAsInt();
+            assertThat(best.getCounters()).isEqualTo(bruteForce);
+            assertThat(pilot.simulate(pool, best.getBoosts()).getCounters()).isEqualTo(bruteForce);
+            assertThat(best.getBoosts()).containsExactlyInAnyOrder(boosts.toArray(new String[0]));
+        }
+    }
+
     @Test
     public void infect_invigorate_deck_goldfish() throws IOException, InstantiationException, IllegalAccessException, ClassNotFoundException {
         new Tools().goldfish(
@@ -16,7 +51,11 @@ public class InfectDeckPilotTest {
                 100000,
                 GoldfishSimulator.Start.BOTH,
                 15,
+                null,
+                0,
                 false,
+                false,
+                null,
                 false);
     }
 
@@ -28,7 +67,11 @@ public class InfectDeckPilotTest {
                 100000,
                 GoldfishSimulator.Start.BOTH,
                 15,
+                null,
+                0,
+                false,
                 false,
+                null,
                 false);
     }
 
@@ -40,8 +83,12 @@ public class InfectDeckPilotTest {
                 3,
                 GoldfishSimulator.Start.BOTH,
                 15,
+                null,
+                0,
+                true,
                 true,
-                true);
+                null,
+                false);
     }
 
     @Test
@@ -52,8 +99,12 @@ public class InfectDeckPilotTest {
                 3,
                 GoldfishSimulator.Start.BOTH,
                 15,
+                null,
+                0,
+                true,
                 true,
-                true);
+                null,
+                false);
     }
 
 }
\ No newline at end of file
@@ -16,7 +16,11 @@ public class KarstenAggroDeck1PilotTest {
                 50000,
                 GoldfishSimulator.Start.BOTH,
                 15,
+                null,
+                0,
                 false,
+                false,
+                null,
                 false);
     }
 
@@ -29,8 +33,12 @@ public class KarstenAggroDeck1PilotTest {
                 3,
                 GoldfishSimulator.Start.BOTH,
                 15,
+                null,
+                0,
+                true,
                 true,
-                true);
+                null,
+                false);
     }
 
 }
\ No newline at end of file
@@ -67,6 +67,9 @@ public class ReanimatorDeckPilotTest {
                 new File("src/main/resources/reanimator-rules.txt"),
                 50000,
                 false,
+                null,
+                0,
+                false,
                 false);
     }
 
@@ -77,6 +80,9 @@ public class ReanimatorDeckPilotTest {
                 new File("src/main/resources/reanimator-rules.txt"),
                 50000,
                 false,
+                null,
+                0,
+                false,
                 false);
     }
 
@@ -100,7 +106,11 @@ public class ReanimatorDeckPilotTest {
                 100000,
                 GoldfishSimulator.Start.BOTH,
                 15,
+                null,
+                0,
+                false,
                 false,
+                null,
                 false);
     }
 
@@ -112,7 +122,11 @@ public class ReanimatorDeckPilotTest {
                 3,
                 GoldfishSimulator.Start.BOTH,
                 15,
+                null,
+                0,
                 true,
-                true);
+                true,
+                null,
+                false);
     }
 }
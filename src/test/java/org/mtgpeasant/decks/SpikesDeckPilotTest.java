@@ -16,7 +16,11 @@ public class SpikesDeckPilotTest {
                 50000,
                 GoldfishSimulator.Start.BOTH,
                 15,
+                null,
+                0,
                 false,
+                false,
+                null,
                 false);
     }
 
@@ -34,4 +34,49 @@ public class ManaTest {
         Mana mana = Mana.of("BU1");
         assertThat(mana.contains(Mana.of("R"))).isFalse();
     }
+
+    @Test
+    public void packed_arithmetic_should_work_on_each_color() {
+        Mana mana = Mana.of("2BBRG").plus(Mana.of("1UW"));
+        assertThat(mana).isEqualTo(Mana.of(2, 1, 1, 1, 1, 3));
+        assertThat(mana.getB()).isEqualTo(2);
+        assertThat(mana.ccm()).isEqualTo(9);
+        assertThat(mana.minus(Mana.of("BUGRW"))).isEqualTo(Mana.of("B3"));
+        assertThat(Mana.of("12")).isEqualTo(Mana.of(0, 0, 0, 0, 0, 12));
+    }
+
+    @Test
+    public void colored_mana_should_pay_colorless_cost() {
+        Mana remains = Mana.of("BU1").minus(Mana.of("3"));
+        assertThat(remains.getB()).isEqualTo(1);
+        assertThat(remains.getX()).isEqualTo(-2);
+        assertThat(remains.isEmpty()).isTrue();
+        assertThat(remains.contains(Mana.of("1"))).isFalse();
+        assertThat(remains.plus(Mana.of("R")).contains(Mana.of("R"))).isTrue();
+    }
+
+    @Test
+    public void missing_should_use_extra_colored_mana_for_colorless() {
+        assertThat(Mana.missing(Mana.of("BG"), Mana.of("2B"))).isEqualTo(Mana.of("1"));
+        assertThat(Mana.missing(Mana.of("BB"), Mana.of("RR"))).isEqualTo(Mana.of("RR"));
+        assertThat(Mana.missing(Mana.of("3"), Mana.of("1G"))).isEqualTo(Mana.of("G"));
+        assertThat(Mana.missing(Mana.of("BU1").minus(Mana.of("3")), Mana.of("B"))).isEqualTo(Mana.of("1"));
+        assertThat(Mana.ofBits(Mana.of("2BR").getBits())).isEqualTo(Mana.of("2BR"));
+    }
+
+    @Test
+    public void pool_should_add_and_pay() {
+        ManaPool pool = new ManaPool();
+        pool.add(Mana.of("BB"));
+        pool.add(Mana.of("R"));
+        assertThat(pool.contains(Mana.of("1BR"))).isTrue();
+        assertThat(pool.contains(Mana.of("RR"))).isFalse();
+        pool.pay(Mana.of("1R"));
+        assertThat(pool.toMana()).isEqualTo(Mana.of(2, 0, 0, 0, 0, -1));
+        assertThat(pool.ccm()).isEqualTo(1);
+        assertThat(pool.toString()).isEqualTo("BB-1");
+        pool.clear();
+        assertThat(pool.isEmpty()).isTrue();
+        assertThat(pool.toMana()).isEqualTo(Mana.zero());
+    }
 }
@@ -0,0 +1,178 @@
+package org.mtgpeasant.perfectdeck.common.cards;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+public class CardsTest {
+    @Test
+    public void should_behave_as_a_deque() {
+        // GIVEN
+        Cards cards = Cards.of("swamp", "mountain", "exhume", "swamp");
+
+        // WHEN
+        cards.addFirst("animate dead");
+        cards.addLast("lotus petal");
+        cards.remove("swamp");
+
+        // THEN
+        Assertions.assertThat(cards).containsExactly("animate dead", "mountain", "exhume", "swamp", "lotus petal");
+        Assertions.assertThat(cards.getFirst()).isEqualTo("animate dead");
+        Assertions.assertThat(cards.getLast()).isEqualTo("lotus petal");
+        Assertions.assertThat(cards.toString()).isEqualTo("[animate dead, mountain, exhume, swamp, lotus petal]");
+    }
+
+    @Test
+    public void counted_cards_should_maintain_counts() {
+        // GIVEN
+        Cards cards = Cards.counted();
+        cards.addAll(Cards.of("swamp", "mountain", "exhume", "swamp"));
+
+        // WHEN
+        cards.remove("swamp");
+        cards.draw(1);
+        cards.addFirst("swamp");
+        cards.pollLast();
+
+        // THEN
+        Assertions.assertThat(cards).containsExactly("swamp", "exhume");
+        Assertions.assertThat(cards.count("swamp")).isEqualTo(1);
+        Assertions.assertThat(cards.count("swamp", "exhume", "swamp")).isEqualTo(2);
+        Assertions.assertThat(cards.contains("mountain")).isFalse();
+        Assertions.assertThat(cards.remove("mountain")).isFalse();
+        cards.clear();
+        Assertions.assertThat(cards.contains("swamp")).isFalse();
+    }
+
+    @Test
+    public void remove_should_keep_order_on_both_sides() {
+        // GIVEN
+        Cards cards = Cards.counted();
+        cards.addAll(Cards.of("swamp", "mountain", "exhume", "animate dead", "reanimate", "lotus petal"));
+
+        // WHEN
+        cards.remove("mountain");
+        cards.remove("reanimate");
+        Iterator<String> it = cards.iterator();
+        it.next();
+        it.next();
+        it.remove();
+        String next = it.next();
+        cards.addFirst("dark ritual");
+
+        // THEN
+        Assertions.assertThat(next).isEqualTo("animate dead");
+        Assertions.assertThat(cards).containsExactly("dark ritual", "swamp", "animate dead", "lotus petal");
+        Assertions.assertThat(cards.contains("exhume")).isFalse();
+    }
+
+    @Test
+    public void counted_cards_should_reuse_holes_and_keep_order() {
+        // GIVEN
+        Cards cards = Cards.counted();
+        Cards expected = Cards.none();
+
+        // WHEN
+        for (int i = 0; i < 100; i++) {
+            cards.addLast("swamp");
+            cards.addFirst("mountain");
+            cards.addLast("exhume");
+            cards.remove("swamp");
+            expected.addFirst("mountain");
+            expected.addLast("exhume");
+        }
+        cards.remove("mountain");
+        cards.removeLastOccurrence("exhume");
+        expected.remove("mountain");
+        expected.removeLastOccurrence("exhume");
+
+        // THEN
+        Assertions.assertThat(cards).containsExactlyElementsOf(expected);
+        Assertions.assertThat(cards.count("mountain")).isEqualTo(99);
+        Assertions.assertThat(cards.count("exhume")).isEqualTo(99);
+        Assertions.assertThat(cards.contains("swamp")).isFalse();
+        Assertions.assertThat(cards.getFirst()).isEqualTo("mountain");
+        Assertions.assertThat(cards.getLast()).isEqualTo("exhume");
+    }
+
+    @Test
+    public void clone_should_keep_counts() {
+        // GIVEN: a counted list with holes
+        Cards cards = Cards.counted();
+        cards.addAll(Cards.of("swamp", "mountain", "exhume", "swamp", "animate dead"));
+        cards.remove("mountain");
+
+        // WHEN
+        Cards copy = cards.clone();
+        copy.remove("swamp");
+        copy.addFirst("exhume");
+        copy.removeLastOccurrence("exhume");
+
+        // THEN
+        Assertions.assertThat(copy).containsExactly("exhume", "swamp", "animate dead");
+        Assertions.assertThat(copy.count("swamp")).isEqualTo(1);
+        Assertions.assertThat(copy.count("exhume")).isEqualTo(1);
+        Assertions.assertThat(copy.contains("mountain")).isFalse();
+        Assertions.assertThat(cards).containsExactly("swamp", "exhume", "swamp", "animate dead");
+        Assertions.assertThat(cards.count("swamp")).isEqualTo(2);
+    }
+
+    @Test
+    public void draw_should_remove_from_top() {
+        // GIVEN
+        Cards library = Cards.of("swamp", "mountain", "exhume", "animate dead");
+
+        // WHEN
+        Cards drawn = library.draw(3);
+        // wraps around the circular buffer
+        library.addFirst("reanimate");
+        library.addFirst("dark ritual");
+
+        // THEN
+        Assertions.assertThat(drawn).containsExactly("swamp", "mountain", "exhume");
+        Assertions.assertThat(library).containsExactly("dark ritual", "reanimate", "animate dead");
+    }
+
+    @Test
+    public void should_grow() {
+        // GIVEN
+        Cards cards = Cards.none();
+
+        // WHEN
+        for (int i = 0; i < 100; i++) {
+            cards.addFirst("swamp");
+            cards.addLast("mountain");
+        }
+
+        // THEN
+        Assertions.assertThat(cards).hasSize(200);
+        Assertions.assertThat(cards.count("swamp")).isEqualTo(100);
+        Assertions.assertThat(cards.look(100).count("mountain")).isEqualTo(0);
+    }
+
+    @Test
+    public void unknown_cards_should_not_be_found() {
+        // GIVEN
+        Cards cards = Cards.of("swamp", "mountain");
+
+        // THEN
+        Assertions.assertThat(cards.contains("never registered card")).isFalse();
+        Assertions.assertThat(cards.count("never registered card", "swamp")).isEqualTo(1);
+        Assertions.assertThat(cards.findAll("never registered card", "mountain")).containsExactly("mountain");
+        Assertions.assertThat(cards.remove("never registered card")).isFalse();
+    }
+
+    @Test
+    public void shuffle_should_keep_cards() {
+        // GIVEN
+        Cards cards = Cards.of("swamp", "swamp", "mountain", "exhume", "animate dead");
+
+        // WHEN
+        Cards shuffled = cards.shuffle();
+
+        // THEN
+        Assertions.assertThat(shuffled).containsExactlyInAnyOrder("swamp", "swamp", "mountain", "exhume", "animate dead");
+        Assertions.assertThat(cards).containsExactly("swamp", "swamp", "mountain", "exhume", "animate dead");
+    }
+}
@@ -0,0 +1,76 @@
+package org.mtgpeasant.perfectdeck.common.cards;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.mtgpeasant.perfectdeck.common.utils.SeedableRandom;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ShufflerTest {
+    @Test
+    public void draws_should_keep_cards() {
+        // GIVEN
+        Shuffler shuffler = new Shuffler(Cards.of("swamp", "swamp", "mountain", "exhume", "animate dead"));
+        SeedableRandom random = new SeedableRandom(42);
+
+        // WHEN
+        Cards hand = shuffler.draw(2, random, Cards.none());
+        Cards library = shuffler.drawAll(random, Cards.none());
+
+        // THEN
+        Assertions.assertThat(hand).hasSize(2);
+        Assertions.assertThat(library).hasSize(3);
+        Cards all = hand.clone();
+        all.addAll(library);
+        Assertions.assertThat(all).containsExactlyInAnyOrder("swamp", "swamp", "mountain", "exhume", "animate dead");
+        Assertions.assertThat(shuffler.reset().size()).isEqualTo(5);
+    }
+
+    @Test
+    public void reused_draws_should_only_depend_on_seed() {
+        // GIVEN
+        Cards deck = Cards.of("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+        Shuffler shuffler = new Shuffler(deck);
+        SeedableRandom random = new SeedableRandom(0);
+        Cards hand = Cards.none();
+
+        for (long seed = 0; seed < 100; seed++) {
+            // WHEN
+            Cards expected = new Shuffler(deck).draw(4, new SeedableRandom(seed), Cards.none());
+            shuffler.reset().draw(4, random.reseed(seed), hand);
+
+            // THEN
+            Assertions.assertThat(hand).containsExactlyElementsOf(expected);
+        }
+    }
+
+    /**
+     * Chi-square goodness of fit: all 120 orders of 5 distinct cards must be equally likely
+     */
+    @Test
+    public void draws_should_be_uniform() {
+        // GIVEN
+        Shuffler shuffler = new Shuffler(Cards.of("a", "b", "c", "d", "e"));
+        SeedableRandom random = new SeedableRandom(42);
+        Cards hand = Cards.none();
+        Cards library = Cards.none();
+        int samples = 120000;
+
+        // WHEN
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < samples; i++) {
+            // lazy draw of a hand, then the rest of the library
+            Cards order = shuffler.reset().draw(2, random, hand).clone();
+            order.addAll(shuffler.drawAll(random, library));
+            counts.merge(order.toString(), 1, Integer::sum);
+        }
+
+        // THEN
+        Assertions.assertThat(counts).hasSize(120);
+        double expected = samples / 120d;
+        double chiSquare = counts.values().stream().mapToDouble(count -> (count - expected) * (count - expected) / expected).sum();
+        // critical value for 119 degrees of freedom, p = 0.001
+        Assertions.assertThat(chiSquare).isLessThan(169.9);
+    }
+}
@@ -0,0 +1,180 @@
+package org.mtgpeasant.perfectdeck.common.matchers;
+
+import com.google.common.collect.Sets;
+import org.assertj.core.api.Assertions;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
+import org.mtgpeasant.perfectdeck.common.cards.Cards;
+import org.mtgpeasant.perfectdeck.common.cards.Deck;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import static org.mtgpeasant.perfectdeck.common.matchers.Matchers.*;
+
+public class AtLeastMatcherTest {
+
+    private static final int HANDS = 20000;
+
+    @Test
+    public void atleast_should_match() {
+        // Given
+        Cards cards = Cards.of("swamp", "mountain", "exhume", "ulamog crusher");
+        Matcher matcher = atleast(2, or(card("swamp"), card("lotus petal")), card("putrid imp"), or(card("exhume"), card("animate dead")));
+
+        // When
+        List<Match> matches = matcher.matches(cards, null).collect(Collectors.toList());
+
+        // Then
+        Assertions.assertThat(matcher).isInstanceOf(AtLeastMatcher.class);
+        Assertions.assertThat(matches).hasSize(1);
+        Assertions.assertThat(matches.get(0).getSelected()).containsExactlyInAnyOrder("swamp", "exhume");
+        Assertions.assertThat(matches.get(0).getRemaining()).containsExactlyInAnyOrder("mountain", "ulamog crusher");
+    }
+
+    @Test
+    public void atleast_should_not_match() {
+        // Given
+        Cards cards = Cards.of("swamp", "mountain", "ulamog crusher");
+        Matcher matcher = atleast(2, or(card("swamp"), card("lotus petal")), card("putrid imp"), or(card("exhume"), card("animate dead")));
+
+        // Then
+        Assertions.assertThat(matcher.matches(cards, null).findFirst()).isEmpty();
+        Assertions.assertThat(matcher.matches(CardCounts.of(cards), null)).isFalse();
+    }
+
+    @Test
+    public void atleast_should_count_distinct_matchers() {
+        // Then
+        Assertions.assertThatThrownBy(() -> atleast(3, card("swamp"), card("swamp"), card("exhume"), card("exhume")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("distinct matchers (2)");
+    }
+
+    /**
+     * Differential test against the former expansion of {@code @atleast(2)} into all combinations
+     */
+    @Test
+    public void reanimator_looting_rule_should_match_as_combinations() throws IOException {
+        // Given
+        MulliganRules rules = reanimatorRules();
+        Matcher matcher = lootingRule(rules);
+        Matcher combinations = expandAtLeast(matcher);
+        Assertions.assertThat(matcher.toString()).contains("@atleast(2)");
+        Assertions.assertThat(combinations.toString()).doesNotContain("@atleast");
+        List<Cards> hands = reanimatorHands();
+
+        // When
+        List<Long> expected = hands.stream().map(hand -> combinations.matches(hand, rules).count()).collect(Collectors.toList());
+        List<Long> actual = hands.stream().map(hand -> matcher.matches(hand, rules).count()).collect(Collectors.toList());
+
+        // Then
+        for (int i = 0; i < HANDS; i++) {
+            Assertions.assertThat(actual.get(i)).as("matches of %s", hands.get(i)).isEqualTo(expected.get(i));
+            Assertions.assertThat(matcher.matches(CardCounts.of(hands.get(i)), rules)).as("match of %s", hands.get(i)).isEqualTo(expected.get(i) > 0);
+        }
+    }
+
+    /**
+     * Benchmark of the same rule: combinations expansion vs. backtracking (only prints timings, asserts nothing)
+     */
+    @Ignore // benchmark: run manually
+    @Test
+    public void reanimator_looting_rule_benchmark() throws IOException {
+        MulliganRules rules = reanimatorRules();
+        Matcher matcher = lootingRule(rules);
+        Matcher combinations = expandAtLeast(matcher);
+        List<Cards> hands = reanimatorHands();
+        List<CardCounts> counts = hands.stream().map(CardCounts::of).collect(Collectors.toList());
+
+        // warm up
+        for (int i = 0; i < 2; i++) {
+            countMatches(combinations, rules, hands);
+            countMatches(matcher, rules, hands);
+            countExists(matcher, rules, counts);
+        }
+
+        long start = System.nanoTime();
+        countMatches(combinations, rules, hands);
+        long combinationsTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        countMatches(matcher, rules, hands);
+        long atLeastTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        countExists(matcher, rules, counts);
+        long existsTime = System.nanoTime() - start;
+
+        System.out.println("@atleast(2) on " + HANDS + " hands: combinations " + combinationsTime / 1000000
+                + "ms, backtracking " + atLeastTime / 1000000
+                + "ms, backtracking (existence only) " + existsTime / 1000000 + "ms");
+    }
+
+    private static long countMatches(Matcher matcher, MulliganRules rules, List<Cards> hands) {
+        long count = 0;
+        for (Cards hand : hands) {
+            count += matcher.matches(hand, rules).count();
+        }
+        return count;
+    }
+
+    private static long countExists(Matcher matcher, MulliganRules rules, List<CardCounts> hands) {
+        long count = 0;
+        for (CardCounts hand : hands) {
+            if (matcher.matches(hand, rules)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private MulliganRules reanimatorRules() throws IOException {
+        return MulliganRules.parse(new InputStreamReader(getClass().getResourceAsStream("/reanimator-rules.txt"))).compile();
+    }
+
+    private static Matcher lootingRule(MulliganRules rules) {
+        return rules.getCriteria().stream()
+                .filter(c -> c.getName().equals("looting to find last element"))
+                .findFirst()
+                .get()
+                .getMatcher();
+    }
+
+    /**
+     * Seeded opening hands, so that a failure can be reproduced
+     */
+    private List<Cards> reanimatorHands() throws IOException {
+        Deck deck = Deck.parse(new InputStreamReader(getClass().getResourceAsStream("/reanimator-deck2.txt")));
+        SplittableRandom random = new SplittableRandom(42);
+        List<Cards> hands = new ArrayList<>();
+        for (int i = 0; i < HANDS; i++) {
+            hands.add(deck.getMain().shuffle(random).draw(7));
+        }
+        return hands;
+    }
+
+    /**
+     * Rewrites {@link AtLeastMatcher} nodes as a choice among all combinations of their matchers
+     */
+    private static Matcher expandAtLeast(Matcher matcher) {
+        if (matcher instanceof AtLeastMatcher) {
+            AtLeastMatcher atLeast = (AtLeastMatcher) matcher;
+            List<Matcher> matchers = atLeast.getMatchers().stream().map(AtLeastMatcherTest::expandAtLeast).collect(Collectors.toList());
+            return new OrMatcher(Sets.combinations(new LinkedHashSet<>(matchers), atLeast.getNb()).stream()
+                    .map(combination -> new AndMatcher(new ArrayList<>(combination)))
+                    .collect(Collectors.toList()));
+        } else if (matcher instanceof AndMatcher) {
+            return new AndMatcher(((AndMatcher) matcher).getMatchers().stream().map(AtLeastMatcherTest::expandAtLeast).collect(Collectors.toList()));
+        } else if (matcher instanceof OrMatcher) {
+            return new OrMatcher(((OrMatcher) matcher).getMatchers().stream().map(AtLeastMatcherTest::expandAtLeast).collect(Collectors.toList()));
+        }
+        return matcher;
+    }
+}
@@ -3,6 +3,7 @@ package org.mtgpeasant.perfectdeck.common.matchers;
 import org.assertj.core.api.Assertions;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.mtgpeasant.perfectdeck.common.cards.CardCounts;
 import org.mtgpeasant.perfectdeck.common.cards.Cards;
 import org.mtgpeasant.perfectdeck.common.utils.ParseError;
 
@@ -160,6 +161,52 @@ public class MatchersTest {
         Assertions.assertThat(matches).isEmpty();
     }
 
+    @Test
+    public void hand_matcher_should_backtrack() {
+        // Given
+        Cards cards = Cards.of(
+                "swamp",
+                "mountain",
+                "ulamog crusher",
+                "lotus petal",
+                "putrid imp"
+        );
+        CardCounts hand = CardCounts.of(cards);
+
+        // lotus petal must be used as the 2nd mana source
+        Matcher matcher = and(or(card("lotus petal"), card("swamp")), or(card("swamp"), card("lotus petal")), card("mountain"), not(card("exhume")));
+
+        // Then
+        Assertions.assertThat(matcher.matches(hand, null)).isTrue();
+        Assertions.assertThat(and(matcher, card("lotus petal")).matches(hand, null)).isFalse();
+        Assertions.assertThat(hand.toString()).isEqualTo(CardCounts.of(cards).toString());
+    }
+
+    @Test
+    public void not_matcher_should_only_reject_matching_branches() {
+        // Given
+        Cards cards = Cards.of(
+                "swamp",
+                "mountain",
+                "ulamog crusher",
+                "animate dead"
+        );
+        CardCounts hand = CardCounts.of(cards);
+
+        // taking the swamp leaves no swamp; taking the mountain leaves one
+        Matcher matcher = and(or(card("swamp"), card("mountain")), not(card("swamp")));
+
+        // When
+        List<Match> matches = matcher.matches(cards, null).collect(Collectors.toList());
+
+        // Then
+        Assertions.assertThat(matches).hasSize(1);
+        Assertions.assertThat(matches.get(0).getSelected()).containsExactly("swamp");
+        Assertions.assertThat(matcher.matches(hand, null)).isEqualTo(!matches.isEmpty());
+        Assertions.assertThat(and(or(card("swamp"), card("mountain")), not(card("animate dead"))).matches(hand, null))
+                .isEqualTo(and(or(card("swamp"), card("mountain")), not(card("animate dead"))).matches(cards, null).findFirst().isPresent());
+    }
+
     @Test
     public void should_not_parse_due_to_no_matcher() throws ParseError {
         // WHEN
@@ -237,8 +284,9 @@ public class MatchersTest {
 
         // THEN
         Assertions.assertThat(declaration.isCriterion()).isTrue();
-        Assertions.assertThat(declaration.getMatcher()).isInstanceOf(OrMatcher.class);
-        Assertions.assertThat(((OrMatcher) declaration.getMatcher()).getMatchers()).hasSize(3);
+        Assertions.assertThat(declaration.getMatcher()).isInstanceOf(AtLeastMatcher.class);
+        Assertions.assertThat(((AtLeastMatcher) declaration.getMatcher()).getNb()).isEqualTo(2);
+        Assertions.assertThat(((AtLeastMatcher) declaration.getMatcher()).getMatchers()).hasSize(3);
     }
 
     @Test
@@ -0,0 +1,83 @@
+package org.mtgpeasant.perfectdeck.common.matchers;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.mtgpeasant.perfectdeck.common.cards.Cards;
+import org.mtgpeasant.perfectdeck.common.cards.Deck;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+public class MulliganRulesTest {
+
+    private static final int HANDS = 5000;
+
+    @Test
+    public void infect_rules_should_match_as_stream_matchers() throws IOException {
+        checkSameCriteria("/infect-rules.txt", "/infect-invigorate-deck.txt");
+        checkSameCriteria("/infect-rules.txt", "/infect-scaleup-deck.txt");
+    }
+
+    @Test
+    public void reanimator_rules_should_match_as_stream_matchers() throws IOException {
+        checkSameCriteria("/reanimator-rules.txt", "/reanimator-deck.txt");
+        checkSameCriteria("/reanimator-rules.txt", "/reanimator-deck2.txt");
+    }
+
+    @Test
+    public void compile_should_resolve_refs_and_flatten_compounds() throws IOException {
+        // GIVEN
+        MulliganRules rules = MulliganRules.parse(new StringReader("<B>: [swamp] | [lotus petal]\n<<rule>>: <B> & ([exhume] & [putrid imp]) & ([mountain] | <B>)"));
+
+        // WHEN
+        Matcher compiled = rules.compile().getCriteria().get(0).getMatcher();
+
+        // THEN
+        Assertions.assertThat(compiled.toString()).isEqualTo("(([swamp] || [lotus petal]) && [exhume] && [putrid imp] && ([mountain] || [swamp] || [lotus petal]))");
+    }
+
+    @Test
+    public void first_match_should_be_cached_by_hand_signature() throws IOException {
+        // GIVEN
+        MulliganRules rules = MulliganRules.parse(new StringReader("<<rule>>: [swamp] & [exhume] & [putrid imp]"));
+
+        // WHEN
+        Optional<Matchers.NamedMatcher> first = rules.firstMatch(Cards.of("swamp", "exhume", "putrid imp", "mountain"));
+        Optional<Matchers.NamedMatcher> reordered = rules.firstMatch(Cards.of("mountain", "putrid imp", "exhume", "swamp"));
+        Optional<Matchers.NamedMatcher> smaller = rules.firstMatch(Cards.of("swamp", "exhume", "putrid imp"));
+        Optional<Matchers.NamedMatcher> other = rules.firstMatch(Cards.of("swamp", "exhume", "mountain"));
+
+        // THEN
+        Assertions.assertThat(first).isPresent();
+        Assertions.assertThat(reordered).isEqualTo(first);
+        Assertions.assertThat(smaller).isEqualTo(first);
+        Assertions.assertThat(other).isEmpty();
+        Assertions.assertThat(rules.getCacheStats().hitCount()).isEqualTo(1);
+        Assertions.assertThat(rules.getCacheStats().missCount()).isEqualTo(3);
+    }
+
+    /**
+     * Differential test: the multiset evaluation must return the same criterion as the {@link Match} stream evaluation
+     */
+    private void checkSameCriteria(String rulesFile, String deckFile) throws IOException {
+        MulliganRules rules = MulliganRules.parse(new InputStreamReader(getClass().getResourceAsStream(rulesFile)));
+        Deck deck = Deck.parse(new InputStreamReader(getClass().getResourceAsStream(deckFile)));
+        Assertions.assertThat(rules.getErrors()).isEmpty();
+        MulliganRules compiledRules = rules.compile();
+
+        // seeded, so that a failing hand is reproducible
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < HANDS; i++) {
+            Cards hand = deck.getMain().shuffle(random).draw(7);
+            Optional<Matchers.NamedMatcher> expected = rules.getCriteria().stream()
+                    .filter(c -> c.getMatcher().matches(hand, rules).findFirst().isPresent())
+                    .findFirst();
+
+            Assertions.assertThat(rules.firstMatch(hand)).as("first match of %s", hand).isEqualTo(expected);
+            Assertions.assertThat(compiledRules.firstMatch(hand).map(Matchers.NamedMatcher::getName)).as("compiled first match of %s", hand).isEqualTo(expected.map(Matchers.NamedMatcher::getName));
+        }
+    }
+}
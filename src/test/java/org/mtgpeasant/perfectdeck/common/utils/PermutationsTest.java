@@ -0,0 +1,24 @@
+package org.mtgpeasant.perfectdeck.common.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PermutationsTest {
+    @Test
+    public void should_stream_all_permutations_in_order() {
+        // WHEN
+        List<String> permutations = Permutations.of(Arrays.asList("a", "b", "c"))
+                .map(permutation -> permutation.collect(Collectors.joining()))
+                .collect(Collectors.toList());
+
+        // THEN
+        assertThat(permutations).containsExactly("abc", "acb", "bac", "bca", "cab", "cba");
+        assertThat(Permutations.of(Arrays.asList(1, 2, 3, 4, 5, 6)).count()).isEqualTo(720);
+        assertThat(Permutations.of(Arrays.asList()).count()).isEqualTo(1);
+    }
+}
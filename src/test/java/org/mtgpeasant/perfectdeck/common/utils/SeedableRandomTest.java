@@ -0,0 +1,27 @@
+package org.mtgpeasant.perfectdeck.common.utils;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SeedableRandomTest {
+    @Test
+    public void should_return_same_ints_as_splittable_random() {
+        // GIVEN
+        SeedableRandom random = new SeedableRandom(0);
+
+        for (long seed = -3; seed < 1000; seed += 7) {
+            // WHEN
+            SplittableRandom expected = new SplittableRandom(seed);
+            random.reseed(seed);
+
+            // THEN
+            for (int bound = 1; bound <= 64; bound++) {
+                assertThat(random.nextInt(bound)).as("seed %d, bound %d", seed, bound).isEqualTo(expected.nextInt(bound));
+            }
+            assertThat(random.nextInt(Integer.MAX_VALUE)).isEqualTo(expected.nextInt(Integer.MAX_VALUE));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.mtgpeasant.perfectdeck.goldfish;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.mtgpeasant.perfectdeck.goldfish.GoldfishSimulator.GameResult;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+public class GameStatsCubeTest {
+    private static final List<GameResult> RESULTS = Arrays.asList(
+            result(true, 0, GameResult.Outcome.WON, 4, 10),
+            result(true, 0, GameResult.Outcome.WON, 5, 6),
+            result(true, 1, GameResult.Outcome.WON, 5, 3),
+            result(false, 0, GameResult.Outcome.WON, 4, 8),
+            result(false, 1, GameResult.Outcome.TIMEOUT, 16, 1)
+    );
+
+    @Test
+    public void cube_should_count_slices() {
+        // WHEN
+        GameStatsCube cube = GameStatsCube.of(RESULTS);
+
+        // THEN
+        Assertions.assertThat(cube.count(null, null, null, null)).isEqualTo(28);
+        Assertions.assertThat(cube.count(true, null, null, null)).isEqualTo(19);
+        Assertions.assertThat(cube.count(null, 0, null, 4)).isEqualTo(18);
+        Assertions.assertThat(cube.count(false, 1, GameResult.Outcome.TIMEOUT, null)).isEqualTo(1);
+        Assertions.assertThat(cube.count(null, null, GameResult.Outcome.WON, 5)).isEqualTo(9);
+        Assertions.assertThat(cube.count(null, 7, null, null)).isEqualTo(0);
+        Assertions.assertThat(cube.getMulligans()).containsExactly(0, 1);
+        Assertions.assertThat(cube.getWinTurns()).containsExactly(4, 5);
+    }
+
+    @Test
+    public void cube_moments_should_match_deck_stats() {
+        // GIVEN
+        GoldfishSimulator.DeckStats stats = GoldfishSimulator.DeckStats.builder().results(RESULTS).iterations(28).build();
+
+        // WHEN
+        GameStatsCube cube = stats.getCube();
+
+        // THEN
+        for (Boolean onThePlay : Arrays.asList(true, false, null)) {
+            for (Integer mulligans : Arrays.asList(0, 1, null)) {
+                Predicate<GameResult> filter = result -> (onThePlay == null || result.isOnThePlay() == onThePlay) && (mulligans == null || result.getMulligans() == mulligans);
+                Assertions.assertThat(cube.getAverageWinTurn(onThePlay, mulligans)).isCloseTo(stats.getAverageWinTurn(filter), Assertions.offset(1e-9));
+                Assertions.assertThat(cube.getWinTurnMAD(onThePlay, mulligans)).isCloseTo(stats.getWinTurnMAD(filter), Assertions.offset(1e-9));
+                Assertions.assertThat(cube.getWinTurnSD(onThePlay, mulligans)).isCloseTo(stats.getWinTurnSD(filter), Assertions.offset(1e-9));
+            }
+        }
+    }
+
+    private static GameResult result(boolean onThePlay, int mulligans, GameResult.Outcome outcome, int endTurn, int count) {
+        return GameResult.builder().onThePlay(onThePlay).mulligans(mulligans).outcome(outcome).endTurn(endTurn).count(count).build();
+    }
+}
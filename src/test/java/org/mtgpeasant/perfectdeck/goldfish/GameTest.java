@@ -4,6 +4,7 @@ import org.assertj.core.api.Assertions;
 import org.junit.Test;
 import org.mtgpeasant.perfectdeck.common.Mana;
 import org.mtgpeasant.perfectdeck.common.cards.Cards;
+import org.mtgpeasant.perfectdeck.common.utils.SeedableRandom;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -73,4 +74,86 @@ public class GameTest {
         System.out.println("remains: " + ctx.getPool());
     }
 
+
+    @Test
+    public void reset_should_restore_initial_state() {
+        // GIVEN
+        Cards library = Cards.of(new ArrayList<>(Arrays.asList("putrid imp", "swamp", "swamp", "mountain", "animate dead", "dragon breath", "faithless looting", "animate dead", "ulamog's crusher", "exhume", "gitaxian probe", "mountain", "hand of emrakul", "mountain")));
+        Cards hand = library.draw(7);
+        Game ctx = new Game(true, null);
+        ctx.rejectHand(hand);
+        ctx.keepHandAndStart(library, hand);
+        ctx.startNextTurn();
+        ctx.land("swamp");
+        ctx.tapLandForMana("swamp", Mana.of("B"));
+        ctx.discard("putrid imp");
+        ctx.damageOpponent(3);
+
+        // WHEN
+        ctx.reset(false, new SeedableRandom(42), null);
+
+        // THEN
+        Assertions.assertThat(ctx.isOnThePlay()).isFalse();
+        Assertions.assertThat(ctx.getMulligans()).isEqualTo(0);
+        Assertions.assertThat(ctx.getCurrentTurn()).isEqualTo(0);
+        Assertions.assertThat(ctx.getOpponentLife()).isEqualTo(20);
+        Assertions.assertThat(ctx.isLanded()).isFalse();
+        Assertions.assertThat(ctx.getBoard()).isEmpty();
+        Assertions.assertThat(ctx.getTapped()).isEmpty();
+        Assertions.assertThat(ctx.getGraveyard()).isEmpty();
+        Assertions.assertThat(ctx.getPool()).isEqualTo(Mana.zero());
+    }
+
+    @Test
+    public void tapped_permanents_should_be_counted_per_card() {
+        // GIVEN
+        Game ctx = GameMock.mock(true, Cards.none(), Cards.none(), Cards.none(), Cards.of("swamp", "mountain", "swamp", "lotus petal"), Cards.none());
+
+        // WHEN
+        ctx.tap("swamp").tap("swamp").tap("mountain");
+
+        // THEN
+        Assertions.assertThat(ctx.getTapped()).containsExactlyInAnyOrder("swamp", "swamp", "mountain");
+        Assertions.assertThat(ctx.countUntapped("swamp", "mountain", "lotus petal")).isEqualTo(1);
+        Assertions.assertThat(ctx.getUntapped("swamp", "lotus petal")).containsExactly("lotus petal");
+        Assertions.assertThat(ctx.findFirstUntapped("swamp", "mountain", "lotus petal")).contains("lotus petal");
+        Assertions.assertThatExceptionOfType(IllegalActionException.class)
+                .isThrownBy(() -> ctx.tap("swamp"))
+                .withMessageEndingWith("all tapped");
+
+        // WHEN
+        ctx.sacrifice("swamp").untap("mountain");
+
+        // THEN
+        Assertions.assertThat(ctx.getTapped()).containsExactly("swamp");
+        Assertions.assertThat(ctx.countUntapped("swamp", "mountain")).isEqualTo(1);
+    }
+
+    @Test
+    public void log_should_only_record_when_tracing() {
+        // GIVEN
+        Cards library = Cards.of(new ArrayList<>(Arrays.asList("swamp", "mountain", "putrid imp", "exhume", "animate dead", "dragon breath", "faithless looting", "swamp")));
+        Cards hand = library.draw(7);
+        GameLog log = new GameLog(3);
+        Game ctx = new Game(true, log);
+
+        // WHEN
+        ctx.keepHandAndStart(library, hand);
+        ctx.startNextTurn();
+        ctx.land("swamp");
+        ctx.tapLandForMana("swamp", Mana.of("B"));
+
+        // THEN
+        Assertions.assertThat(ctx.isTracing()).isTrue();
+        Assertions.assertThat(log.size()).isEqualTo(3);
+        Assertions.assertThat(log.toString()).contains("- land [swamp]", "- tap [swamp] and add B to mana pool", "earlier events dropped");
+
+        // WHEN
+        ctx.reset(true, new SeedableRandom(42), null);
+        ctx.log("not recorded");
+
+        // THEN
+        Assertions.assertThat(ctx.isTracing()).isFalse();
+        Assertions.assertThat(log.size()).isEqualTo(3);
+    }
 }
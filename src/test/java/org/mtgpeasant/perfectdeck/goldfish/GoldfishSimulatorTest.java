@@ -0,0 +1,270 @@
+package org.mtgpeasant.perfectdeck.goldfish;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.mtgpeasant.decks.KarstenAggroDeck1Pilot;
+import org.mtgpeasant.perfectdeck.common.cards.Cards;
+import org.mtgpeasant.perfectdeck.common.cards.Deck;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+public class GoldfishSimulatorTest {
+    @Test
+    public void results_should_only_depend_on_seed() throws Exception {
+        // GIVEN
+        Deck deck = Deck.parse(new InputStreamReader(getClass().getResourceAsStream("/karsten-deck-1.txt")));
+        GoldfishSimulator simulator = GoldfishSimulator.builder()
+                .pilotClass(KarstenAggroDeck1Pilot.class)
+                .iterations(5000)
+                .maxTurns(15)
+                .seed(42)
+                .build();
+
+        // WHEN
+        GoldfishSimulator.DeckStats parallel = simulator.simulate(deck);
+        GoldfishSimulator.DeckStats singleThread = new ForkJoinPool(1).submit(() -> simulator.simulate(deck)).get();
+
+        // THEN
+        Assertions.assertThat(parallel.count(result -> true)).isEqualTo(5000);
+        Assertions.assertThat(counts(singleThread)).isEqualTo(counts(parallel));
+    }
+
+    @Test
+    public void traces_should_only_hold_matching_games() throws Exception {
+        // GIVEN
+        Deck deck = Deck.parse(new InputStreamReader(getClass().getResourceAsStream("/karsten-deck-1.txt")));
+        StringWriter output = new StringWriter();
+        GameTraces traces = new GameTraces(output, result -> result.getEndTurn() == 4 && result.getMulligans() == 1, 3);
+        GoldfishSimulator simulator = GoldfishSimulator.builder()
+                .pilotClass(KarstenAggroDeck1Pilot.class)
+                .iterations(5000)
+                .maxTurns(15)
+                .seed(42)
+                .traces(traces)
+                .build();
+
+        // WHEN
+        GoldfishSimulator.DeckStats stats = simulator.simulate(deck);
+
+        // THEN
+        Assertions.assertThat(stats.count(result -> result.getEndTurn() == 4 && result.getMulligans() == 1)).isGreaterThan(3);
+        Assertions.assertThat(traces.getCount()).isEqualTo(3);
+        Assertions.assertThat(output.toString().split("### game #")).hasSize(4);
+        Assertions.assertThat(output.toString()).contains("mulligans=1", "endTurn=4", "=== Turn 4 ===").doesNotContain("=== Turn 5 ===");
+    }
+
+    @Test
+    public void games_should_be_replayed_from_their_seed() throws Exception {
+        // GIVEN
+        Deck deck = Deck.parse(new InputStreamReader(getClass().getResourceAsStream("/karsten-deck-1.txt")));
+        GoldfishSimulator simulator = GoldfishSimulator.builder()
+                .pilotClass(KarstenAggroDeck1Pilot.class)
+                .iterations(1000)
+                .maxTurns(15)
+                .build();
+
+        // WHEN
+        GoldfishSimulator.DeckStats stats = simulator.simulate(deck);
+
+        // THEN
+        for (GoldfishSimulator.GameResult result : stats.getResults()) {
+            Assertions.assertThat(result.getSeed()).isNotNull();
+            Assertions.assertThat(simulator.replay(deck, result.getSeed())).isEqualTo(result);
+        }
+    }
+
+    @Test
+    public void simulation_should_stop_once_precision_is_reached() throws Exception {
+        // GIVEN
+        Deck deck = Deck.parse(new InputStreamReader(getClass().getResourceAsStream("/karsten-deck-1.txt")));
+        GoldfishSimulator simulator = GoldfishSimulator.builder()
+                .pilotClass(KarstenAggroDeck1Pilot.class)
+                .iterations(100000)
+                .maxTurns(15)
+                .precision(0.1)
+                .seed(42)
+                .build();
+
+        // WHEN
+        GoldfishSimulator.DeckStats stats = simulator.simulate(deck);
+
+        // THEN
+        Assertions.assertThat(stats.getPrecision()).isLessThanOrEqualTo(0.1);
+        Assertions.assertThat(stats.getIterations()).isLessThan(100000).isGreaterThan(0);
+        Assertions.assertThat(stats.count(result -> true)).isEqualTo(stats.getIterations());
+    }
+
+    @Test
+    public void several_decks_should_be_simulated_as_one_by_one() throws Exception {
+        // GIVEN
+        Deck deck = Deck.parse(new InputStreamReader(getClass().getResourceAsStream("/karsten-deck-1.txt")));
+        Cards main = deck.getMain().clone();
+        main.remove("savannah lions");
+        main.addFirst("lightning bolt");
+        Deck variant = Deck.builder().main(main).sideboard(Cards.none()).build();
+        GoldfishSimulator simulator = GoldfishSimulator.builder()
+                .pilotClass(KarstenAggroDeck1Pilot.class)
+                .iterations(20000)
+                .maxTurns(15)
+                .precision(0.05)
+                .seed(42)
+                .build();
+
+        // WHEN
+        List<GoldfishSimulator.DeckStats> stats = simulator.simulate(Arrays.asList(deck, variant));
+
+        // THEN
+        Assertions.assertThat(stats).extracting(GoldfishSimulator.DeckStats::getDeck).containsExactly(deck, variant);
+        Assertions.assertThat(counts(stats.get(0))).isEqualTo(counts(simulator.simulate(deck)));
+        Assertions.assertThat(counts(stats.get(1))).isEqualTo(counts(simulator.simulate(variant)));
+    }
+
+    @Test
+    public void paired_comparison_should_reduce_variance() throws Exception {
+        // GIVEN
+        Deck deck = Deck.parse(new InputStreamReader(getClass().getResourceAsStream("/karsten-deck-1.txt")));
+        Cards main = deck.getMain().clone();
+        main.remove("savannah lions");
+        main.addFirst("lightning bolt");
+        Deck variant = Deck.builder().main(main).sideboard(Cards.none()).build();
+        GoldfishSimulator simulator = GoldfishSimulator.builder()
+                .pilotClass(KarstenAggroDeck1Pilot.class)
+                .iterations(5000)
+                .maxTurns(15)
+                .seed(42)
+                .build();
+
+        // WHEN
+        GoldfishSimulator.PairedStats same = simulator.compare(deck, deck);
+        GoldfishSimulator.PairedStats paired = simulator.compare(deck, variant);
+
+        // THEN
+        Assertions.assertThat(same.getDifference()).isEqualTo(0);
+        Assertions.assertThat(same.getPrecision()).isEqualTo(0);
+        Assertions.assertThat(paired.getIterations()).isEqualTo(5000);
+        Assertions.assertThat(paired.getPrecision()).isLessThan(paired.getUnpairedPrecision() / 2);
+    }
+
+    @Test
+    public void align_should_keep_common_cards_positions() {
+        // GIVEN
+        Cards reference = Cards.of("swamp", "exhume", "swamp", "mountain", "exhume");
+        Cards cards = Cards.of("mountain", "swamp", "exhume", "swamp", "putrid imp");
+
+        // WHEN
+        Cards aligned = GoldfishSimulator.align(reference, cards);
+
+        // THEN
+        Assertions.assertThat(aligned).containsExactly("swamp", "exhume", "swamp", "mountain", "putrid imp");
+    }
+
+    @Test
+    public void errors_before_first_turn_should_hold_the_game_log() throws Exception {
+        // GIVEN
+        Deck deck = Deck.parse(new InputStreamReader(getClass().getResourceAsStream("/karsten-deck-1.txt")));
+        GoldfishSimulator simulator = GoldfishSimulator.builder()
+                .pilotClass(FailingOnThePlayPilot.class)
+                .iterations(100)
+                .seed(42)
+                .build();
+
+        // WHEN / THEN
+        Assertions.assertThatExceptionOfType(GameInternalError.class)
+                .isThrownBy(() -> simulator.simulate(deck))
+                .withMessageContaining("=== New Game: OTP ===")
+                .withCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void failed_games_should_be_traced_without_aborting_in_trace_mode() throws Exception {
+        // GIVEN
+        Deck deck = Deck.parse(new InputStreamReader(getClass().getResourceAsStream("/karsten-deck-1.txt")));
+        StringWriter output = new StringWriter();
+        GameTraces traces = new GameTraces(output, result -> false, 5);
+        GoldfishSimulator simulator = GoldfishSimulator.builder()
+                .pilotClass(FailingOnThePlayPilot.class)
+                .iterations(100)
+                .maxTurns(3)
+                .seed(42)
+                .traces(traces)
+                .build();
+
+        // WHEN
+        GoldfishSimulator.DeckStats stats = simulator.simulate(deck);
+
+        // THEN: games on the play (even seeds) failed
+        Assertions.assertThat(stats.getIterations()).isEqualTo(100);
+        Assertions.assertThat(stats.getFailed()).isEqualTo(50);
+        Assertions.assertThat(stats.count(result -> true)).isEqualTo(50);
+        Assertions.assertThat(stats.count(GoldfishSimulator.GameResult::isOnThePlay)).isEqualTo(0);
+        Assertions.assertThat(traces.getCount()).isEqualTo(5);
+        Assertions.assertThat(output.toString()).contains("FAILED (java.lang.IllegalStateException: failed on the play)");
+    }
+
+    @Test
+    public void traces_write_errors_should_abort_the_simulation() throws Exception {
+        // GIVEN: a full disk
+        Deck deck = Deck.parse(new InputStreamReader(getClass().getResourceAsStream("/karsten-deck-1.txt")));
+        Writer output = new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("No space left on device");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        GameTraces traces = new GameTraces(output, result -> true, 5);
+        GoldfishSimulator simulator = GoldfishSimulator.builder()
+                .pilotClass(KarstenAggroDeck1Pilot.class)
+                .iterations(100)
+                .maxTurns(15)
+                .seed(42)
+                .traces(traces)
+                .build();
+
+        // WHEN / THEN
+        Assertions.assertThatThrownBy(() -> simulator.simulate(deck))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("Couldn't write game traces");
+    }
+
+    /**
+     * Fails before the first turn of games on the play
+     */
+    public static class FailingOnThePlayPilot extends DeckPilot {
+        public FailingOnThePlayPilot(Game game) {
+            super(game);
+        }
+
+        @Override
+        public boolean keepHand(Cards hand) {
+            return true;
+        }
+
+        @Override
+        public void start() {
+            if (game.isOnThePlay()) {
+                throw new IllegalStateException("failed on the play");
+            }
+        }
+    }
+
+    private static Map<GoldfishSimulator.GameResult, Integer> counts(GoldfishSimulator.DeckStats stats) {
+        return stats.getResults().stream().collect(Collectors.toMap(result -> result, GoldfishSimulator.GameResult::getCount));
+    }
+}
@@ -0,0 +1,63 @@
+package org.mtgpeasant.perfectdeck.goldfish;
+
+import org.junit.Test;
+import org.mtgpeasant.perfectdeck.common.Mana;
+import org.mtgpeasant.perfectdeck.common.cards.Cards;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ManaSolverTest {
+    private static final ManaSolver SOLVER = new ManaSolver(
+            ManaSource.builder().card("mountain").kind(ManaSource.Kind.TAP).colors("R").build(),
+            ManaSource.builder().card("swamp").kind(ManaSource.Kind.TAP).colors("B").build(),
+            ManaSource.builder().card("swamp").kind(ManaSource.Kind.LAND_DROP).colors("B").cost(1).build(),
+            ManaSource.builder().card("simian spirit guide").kind(ManaSource.Kind.DISCARD).colors("R").cost(2).build(),
+            ManaSource.builder().card("lotus petal").kind(ManaSource.Kind.SACRIFICE).colors("BUGRW").cost(3).build()
+    );
+
+    @Test
+    public void colored_mana_should_be_paid_with_matching_sources() {
+        // GIVEN
+        Game game = GameMock.mock(true, Cards.of("simian spirit guide"), Cards.none(), Cards.none(), Cards.of("mountain", "swamp", "lotus petal"), Cards.none());
+
+        // WHEN
+        SOLVER.preparePool(game, Mana.of("1B"));
+
+        // THEN: swamp pays B, mountain pays 1 (petal is kept)
+        assertThat(game.getTapped()).containsExactlyInAnyOrder("mountain", "swamp");
+        assertThat(game.getBoard()).contains("lotus petal");
+        assertThat(game.canPay(Mana.of("1B"))).isTrue();
+    }
+
+    @Test
+    public void cheapest_sources_should_be_used_first() {
+        // GIVEN
+        Game game = GameMock.mock(true, Cards.of("swamp", "simian spirit guide"), Cards.none(), Cards.none(), Cards.of("lotus petal"), Cards.none());
+
+        // WHEN
+        ManaSolver.Plan plan = SOLVER.plan(game, Mana.of("BR")).get();
+
+        // THEN: land drop for B, simian for R
+        assertThat(plan.getCost()).isEqualTo(3);
+        assertThat(plan.getPayments()).extracting(payment -> payment.getSource().getCard()).containsExactly("swamp", "simian spirit guide");
+    }
+
+    @Test
+    public void mana_pool_and_land_drop_should_be_taken_into_account() {
+        // GIVEN
+        Game game = GameMock.mock(true, Cards.of("swamp", "swamp"), Cards.none(), Cards.none(), Cards.none(), Cards.none());
+        game.add(Mana.of("R"));
+
+        // THEN
+        assertThat(SOLVER.canPay(game, Mana.of("1B"))).isTrue();
+        assertThat(SOLVER.canPay(game, Mana.of("BB"))).isFalse();
+
+        // WHEN
+        SOLVER.preparePool(game, Mana.of("1B"));
+
+        // THEN
+        assertThat(game.isLanded()).isTrue();
+        assertThat(game.getPool()).isEqualTo(Mana.of("BR"));
+        assertThat(SOLVER.canPay(game, Mana.of("2B"))).isFalse();
+    }
+}
@@ -0,0 +1,140 @@
+package org.mtgpeasant.perfectdeck.mulligan;
+
+import org.assertj.core.api.Assertions;
+import org.assertj.core.data.Offset;
+import org.junit.Test;
+import org.mtgpeasant.perfectdeck.common.cards.Cards;
+import org.mtgpeasant.perfectdeck.common.cards.Deck;
+import org.mtgpeasant.perfectdeck.common.matchers.Matchers;
+import org.mtgpeasant.perfectdeck.common.matchers.MulliganRules;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class MulliganSimulatorTest {
+    @Test
+    public void exact_rates_should_follow_hypergeometric_distribution() throws IOException {
+        // GIVEN
+        List<String> main = new ArrayList<>(Collections.nCopies(56, "swamp"));
+        main.addAll(Collections.nCopies(4, "exhume"));
+        Deck deck = Deck.builder().main(Cards.of(main)).sideboard(Cards.none()).build();
+        MulliganRules rules = MulliganRules.parse(new StringReader("<<exhume>>: [exhume]"));
+
+        // WHEN
+        MulliganSimulator.DeckMatches matches = MulliganSimulator.builder().rules(rules).exact(true).build().simulate(deck);
+
+        // THEN
+        // 1 - C(56,7) / C(60,7)
+        Assertions.assertThat(matches.getMatchRate(rules.getCriteria().get(0))).isCloseTo(1 - 231917400d / 386206920d, Offset.offset(1e-12));
+        Assertions.assertThat(matches.getNoMatchRate()).isCloseTo(231917400d / 386206920d, Offset.offset(1e-12));
+        // 0 to 4 exhumes
+        Assertions.assertThat(matches.getIterations()).isEqualTo(5);
+        Assertions.assertThat(matches.getCacheStats().requestCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void exact_rates_should_match_sampled_rates() throws IOException {
+        // GIVEN
+        Deck deck = Deck.parse(new InputStreamReader(getClass().getResourceAsStream("/reanimator-deck.txt")));
+        MulliganRules rules = MulliganRules.parse(new InputStreamReader(getClass().getResourceAsStream("/reanimator-rules.txt")));
+
+        // WHEN
+        MulliganSimulator.DeckMatches exact = MulliganSimulator.builder().rules(rules).exact(true).build().simulate(deck);
+        MulliganSimulator.DeckMatches sampled = MulliganSimulator.builder().rules(rules).iterations(50000).build().simulate(deck);
+
+        // THEN
+        for (Matchers.NamedMatcher criteria : rules.getCriteria()) {
+            Assertions.assertThat(sampled.getMatchRate(criteria)).as(criteria.getName()).isCloseTo(exact.getMatchRate(criteria), Offset.offset(0.015));
+        }
+        Assertions.assertThat(sampled.getNoMatchRate()).isCloseTo(exact.getNoMatchRate(), Offset.offset(0.015));
+        Assertions.assertThat(exact.getTotalWeight()).isEqualTo(386206920d);
+    }
+
+    @Test
+    public void sampling_should_stop_once_precision_is_reached() throws IOException {
+        // GIVEN
+        List<String> main = new ArrayList<>(Collections.nCopies(56, "swamp"));
+        main.addAll(Collections.nCopies(4, "exhume"));
+        Deck deck = Deck.builder().main(Cards.of(main)).sideboard(Cards.none()).build();
+        MulliganRules rules = MulliganRules.parse(new StringReader("<<exhume>>: [exhume]"));
+
+        // WHEN
+        MulliganSimulator.DeckMatches matches = MulliganSimulator.builder().rules(rules).iterations(100000).precision(0.02).seed(42).build().simulate(deck);
+
+        // THEN
+        Assertions.assertThat(matches.getPrecision()).isLessThanOrEqualTo(0.02);
+        Assertions.assertThat(matches.getIterations()).isLessThan(100000).isGreaterThan(0);
+        Assertions.assertThat(matches.getIterations() % 1000).isEqualTo(0);
+        Assertions.assertThat(matches.getMatchRate(rules.getCriteria().get(0))).isCloseTo(1 - 231917400d / 386206920d, Offset.offset(0.04));
+    }
+
+    @Test
+    public void sampled_rates_should_only_depend_on_seed() throws Exception {
+        // GIVEN
+        Deck deck = Deck.parse(new InputStreamReader(getClass().getResourceAsStream("/reanimator-deck.txt")));
+        MulliganRules rules = MulliganRules.parse(new InputStreamReader(getClass().getResourceAsStream("/reanimator-rules.txt")));
+        MulliganSimulator simulator = MulliganSimulator.builder().rules(rules).iterations(20000).seed(42).build();
+
+        // WHEN
+        MulliganSimulator.DeckMatches parallel = simulator.simulate(deck);
+        MulliganSimulator.DeckMatches singleThread = new ForkJoinPool(1).submit(() -> simulator.simulate(deck)).get();
+
+        // THEN
+        Assertions.assertThat(parallel.getIterations()).isEqualTo(20000);
+        Assertions.assertThat(singleThread.getMatchWeight()).isEqualTo(parallel.getMatchWeight());
+        Assertions.assertThat(singleThread.getNoMatchWeight()).isEqualTo(parallel.getNoMatchWeight());
+    }
+
+    @Test
+    public void several_decks_should_be_sampled_as_one_by_one() throws Exception {
+        // GIVEN
+        MulliganRules rules = MulliganRules.parse(new StringReader("<<exhume>>: [exhume]"));
+        List<Deck> decks = new ArrayList<>();
+        for (int exhumes = 1; exhumes <= 4; exhumes++) {
+            List<String> main = new ArrayList<>(Collections.nCopies(60 - exhumes, "swamp"));
+            main.addAll(Collections.nCopies(exhumes, "exhume"));
+            decks.add(Deck.builder().main(Cards.of(main)).sideboard(Cards.none()).build());
+        }
+        MulliganSimulator simulator = MulliganSimulator.builder().rules(rules).iterations(100000).precision(0.01).seed(42).build();
+
+        // WHEN
+        List<MulliganSimulator.DeckMatches> all = simulator.simulate(decks);
+
+        // THEN
+        Assertions.assertThat(all).hasSize(4);
+        for (int i = 0; i < decks.size(); i++) {
+            MulliganSimulator.DeckMatches single = simulator.simulate(decks.get(i));
+            Assertions.assertThat(all.get(i).getDeck()).isSameAs(decks.get(i));
+            Assertions.assertThat(all.get(i).getIterations()).isEqualTo(single.getIterations());
+            Assertions.assertThat(all.get(i).getNoMatchWeight()).isEqualTo(single.getNoMatchWeight());
+        }
+    }
+
+    @Test
+    public void cache_stats_should_be_per_deck() throws Exception {
+        // GIVEN
+        MulliganRules rules = MulliganRules.parse(new StringReader("<<exhume>>: [exhume]"));
+        List<Deck> decks = new ArrayList<>();
+        for (int exhumes = 1; exhumes <= 4; exhumes++) {
+            List<String> main = new ArrayList<>(Collections.nCopies(60 - exhumes, "swamp"));
+            main.addAll(Collections.nCopies(exhumes, "exhume"));
+            decks.add(Deck.builder().main(Cards.of(main)).sideboard(Cards.none()).build());
+        }
+        MulliganSimulator simulator = MulliganSimulator.builder().rules(rules).iterations(10000).seed(42).build();
+
+        // WHEN
+        List<MulliganSimulator.DeckMatches> all = simulator.simulate(decks);
+
+        // THEN
+        for (MulliganSimulator.DeckMatches matches : all) {
+            Assertions.assertThat(matches.getCacheStats().requestCount()).isEqualTo(matches.getIterations());
+        }
+        // one cache shared by all decks
+        Assertions.assertThat(simulator.getCompiledRules().getCacheStats().requestCount()).isEqualTo(40000);
+    }
+}
@@ -0,0 +1,83 @@
+package org.mtgpeasant.perfectdeck.optimizer;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.mtgpeasant.perfectdeck.common.cards.Cards;
+import org.mtgpeasant.perfectdeck.common.cards.Deck;
+import org.mtgpeasant.perfectdeck.common.matchers.MulliganRules;
+import org.mtgpeasant.perfectdeck.mulligan.MulliganSimulator;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class DeckOptimizerTest {
+    @Test
+    public void slots_should_parse() {
+        // WHEN
+        List<DeckOptimizer.Slot> slots = DeckOptimizer.Slot.parse("Lightning Bolt=8..16; savannah lions = 12..20");
+
+        // THEN
+        Assertions.assertThat(slots).containsExactly(new DeckOptimizer.Slot("lightning bolt", 8, 16), new DeckOptimizer.Slot("savannah lions", 12, 20));
+    }
+
+    @Test
+    public void neighbors_should_swap_one_card() throws IOException {
+        // GIVEN
+        DeckOptimizer optimizer = optimizer(DeckOptimizer.Strategy.HILL_CLIMBING);
+
+        // WHEN
+        List<Deck> neighbors = optimizer.neighbors(deck());
+
+        // THEN
+        Assertions.assertThat(neighbors).hasSize(2);
+        for (Deck neighbor : neighbors) {
+            Assertions.assertThat(neighbor.getMain()).hasSize(60);
+            Assertions.assertThat(neighbor.getSideboard()).hasSize(8);
+            Assertions.assertThat(neighbor.getMain().count("exhume")).isIn(3, 5);
+        }
+    }
+
+    @Test
+    public void hill_climbing_should_maximize_keep_rate() throws IOException {
+        // WHEN
+        DeckOptimizer.Result result = optimizer(DeckOptimizer.Strategy.HILL_CLIMBING).optimize(deck());
+
+        // THEN
+        Assertions.assertThat(result.getDeck().getMain().count("exhume")).isEqualTo(8);
+        Assertions.assertThat(result.getDeckList()).isEqualTo("8 exhume\n52 swamp\n");
+        Assertions.assertThat(result.getSteps()).isEqualTo(4);
+    }
+
+    @Test
+    public void annealing_should_maximize_keep_rate() throws IOException {
+        // WHEN
+        DeckOptimizer.Result result = optimizer(DeckOptimizer.Strategy.ANNEALING).optimize(deck());
+
+        // THEN
+        Assertions.assertThat(result.getDeck().getMain().count("exhume")).isEqualTo(8);
+    }
+
+    private static DeckOptimizer optimizer(DeckOptimizer.Strategy strategy) throws IOException {
+        MulliganRules rules = MulliganRules.parse(new StringReader("<<exhume>>: [exhume]"));
+        MulliganSimulator simulator = MulliganSimulator.builder().rules(rules).seed(42).build();
+        return DeckOptimizer.builder()
+                .slots(DeckOptimizer.Slot.parse("exhume=0..8; swamp=52..60"))
+                .objective(deck -> new DeckContestants.Mulligans(simulator, deck))
+                .strategy(strategy)
+                .temperature(0.001)
+                .maxSteps(30)
+                .seed(42)
+                .build();
+    }
+
+    private static Deck deck() {
+        List<String> main = new ArrayList<>(Collections.nCopies(56, "swamp"));
+        main.addAll(Collections.nCopies(4, "exhume"));
+        List<String> side = new ArrayList<>(Collections.nCopies(4, "swamp"));
+        side.addAll(Collections.nCopies(4, "exhume"));
+        return Deck.builder().main(Cards.of(main)).sideboard(Cards.of(side)).build();
+    }
+}
@@ -0,0 +1,104 @@
+package org.mtgpeasant.perfectdeck.optimizer;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.mtgpeasant.perfectdeck.common.cards.Cards;
+import org.mtgpeasant.perfectdeck.common.cards.Deck;
+import org.mtgpeasant.perfectdeck.common.matchers.MulliganRules;
+import org.mtgpeasant.perfectdeck.mulligan.MulliganSimulator;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class RacingSchedulerTest {
+    @Test
+    public void racing_should_drop_outraced_contestants() {
+        // GIVEN
+        List<Fake> contestants = Arrays.asList(new Fake(3.0), new Fake(3.05), new Fake(4.0), new Fake(5.0));
+        RacingScheduler scheduler = RacingScheduler.builder().batch(100).maxIterations(100000).build();
+
+        // WHEN
+        RacingScheduler.Result<Fake> result = scheduler.race(contestants);
+
+        // THEN
+        Assertions.assertThat(result.getSurvivors()).containsExactly(contestants.get(0));
+        Assertions.assertThat(result.getDropped()).containsExactly(contestants.get(3), contestants.get(2), contestants.get(1));
+        // clearly worse contestants are dropped first
+        Assertions.assertThat(contestants.get(3).getIterations()).isLessThan(contestants.get(1).getIterations());
+    }
+
+    @Test
+    public void halving_should_drop_worst_half() {
+        // GIVEN
+        List<Fake> contestants = Arrays.asList(new Fake(5.0), new Fake(4.0), new Fake(3.0), new Fake(3.05), new Fake(6.0));
+        RacingScheduler scheduler = RacingScheduler.builder().batch(100).strategy(RacingScheduler.Strategy.HALVING).survivors(2).build();
+
+        // WHEN
+        RacingScheduler.Result<Fake> result = scheduler.race(contestants);
+
+        // THEN
+        Assertions.assertThat(result.getRounds()).isEqualTo(2);
+        Assertions.assertThat(result.getSurvivors()).containsExactly(contestants.get(2), contestants.get(3));
+        Assertions.assertThat(result.getDropped()).containsExactly(contestants.get(4), contestants.get(0), contestants.get(1));
+    }
+
+    @Test
+    public void racing_should_find_best_deck() throws IOException {
+        // GIVEN
+        MulliganRules rules = MulliganRules.parse(new StringReader("<<exhume>>: [exhume]"));
+        MulliganSimulator simulator = MulliganSimulator.builder().rules(rules).seed(42).build();
+        List<DeckContestants.Mulligans> contestants = Arrays.asList(1, 4, 2, 3).stream()
+                .map(exhumes -> new DeckContestants.Mulligans(simulator, deck(exhumes)))
+                .collect(Collectors.toList());
+
+        // WHEN
+        RacingScheduler.Result<DeckContestants.Mulligans> result = RacingScheduler.builder().batch(500).build().race(contestants);
+
+        // THEN
+        Assertions.assertThat(result.getSurvivors()).containsExactly(contestants.get(1));
+        Assertions.assertThat(result.getDropped()).endsWith(contestants.get(3));
+    }
+
+    private static Deck deck(int exhumes) {
+        List<String> main = new ArrayList<>(Collections.nCopies(60 - exhumes, "swamp"));
+        main.addAll(Collections.nCopies(exhumes, "exhume"));
+        return Deck.builder().main(Cards.of(main)).sideboard(Cards.none()).build();
+    }
+
+    /**
+     * Contestant with a known score, and a precision that decreases with iterations
+     */
+    private static class Fake implements Contestant {
+        final double score;
+        int iterations;
+
+        Fake(double score) {
+            this.score = score;
+        }
+
+        @Override
+        public synchronized void run(int iterations) {
+            this.iterations += iterations;
+        }
+
+        @Override
+        public int getIterations() {
+            return iterations;
+        }
+
+        @Override
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public double getPrecision() {
+            return 5 / Math.sqrt(iterations);
+        }
+    }
+}